@@ -0,0 +1,101 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.springframework.boot.Banner;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import ru.yandex.practicum.filmorate.FilmorateApplication;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Friendship;
+import ru.yandex.practicum.filmorate.model.Rating;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.user.UserStorage;
+import ru.yandex.practicum.filmorate.util.IntHashSet;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+
+final class BenchmarkData {
+    private static final int BATCH_SIZE = 1000;
+
+    private BenchmarkData() {
+    }
+
+    static ConfigurableApplicationContext startContext() {
+        return new SpringApplicationBuilder(FilmorateApplication.class)
+                .web(WebApplicationType.NONE)
+                .bannerMode(Banner.Mode.OFF)
+                .logStartupInfo(false)
+                .properties("spring.datasource.url=jdbc:h2:mem:benchmark-" + UUID.randomUUID(),
+                        "logging.level.root=WARN")
+                .run();
+    }
+
+    static int[] seedUsers(UserStorage userStorage, int userCount, int friendsPerUser, Random random) {
+        int[] userIds = new int[userCount];
+        for (int from = 0; from < userCount; from += BATCH_SIZE) {
+            List<User> users = new ArrayList<>(BATCH_SIZE);
+            for (int i = from; i < Math.min(from + BATCH_SIZE, userCount); i++) {
+                users.add(User.builder().login("login" + i).email("user" + i + "@yandex.ru")
+                        .birthday(LocalDate.of(2000, 1, 1)).build());
+            }
+            List<User> addedUsers = userStorage.addUsers(users);
+            for (int i = 0; i < addedUsers.size(); i++) {
+                userIds[from + i] = addedUsers.get(i).getId();
+            }
+        }
+
+        List<Friendship> friendships = new ArrayList<>(BATCH_SIZE);
+        for (int userId : userIds) {
+            for (int friendId : randomIds(userIds, Math.min(friendsPerUser, userCount), random).toIntArray()) {
+                if (friendId != userId) {
+                    friendships.add(new Friendship(userId, friendId));
+                }
+                if (friendships.size() == BATCH_SIZE) {
+                    userStorage.addFriendships(friendships);
+                    friendships = new ArrayList<>(BATCH_SIZE);
+                }
+            }
+        }
+        if (!friendships.isEmpty()) {
+            userStorage.addFriendships(friendships);
+        }
+        return userIds;
+    }
+
+    static int[] seedFilms(FilmStorage filmStorage, int filmCount, int likesPerFilm, int[] userIds,
+                           Random random) {
+        int[] filmIds = new int[filmCount];
+        for (int from = 0; from < filmCount; from += BATCH_SIZE) {
+            List<Film> films = new ArrayList<>(BATCH_SIZE);
+            for (int i = from; i < Math.min(from + BATCH_SIZE, filmCount); i++) {
+                Film film = Film.builder().name("Film " + i).description("Description " + i)
+                        .releaseDate(LocalDate.of(2000, 1, 1)).duration(90).mpa(new Rating(1, null)).build();
+                film.setLikes(randomIds(userIds, random.nextInt(2 * likesPerFilm + 1), random));
+                films.add(film);
+            }
+            List<Film> addedFilms = filmStorage.addFilms(films);
+            for (int i = 0; i < addedFilms.size(); i++) {
+                filmIds[from + i] = addedFilms.get(i).getId();
+            }
+        }
+        return filmIds;
+    }
+
+    static int randomId(int[] ids, Random random) {
+        return ids[random.nextInt(ids.length)];
+    }
+
+    private static IntHashSet randomIds(int[] ids, int count, Random random) {
+        IntHashSet randomIds = new IntHashSet();
+        int limit = Math.min(count, ids.length);
+        while (randomIds.size() < limit) {
+            randomIds.add(randomId(ids, random));
+        }
+        return randomIds;
+    }
+}
@@ -0,0 +1,71 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.user.UserStorage;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FilmStorageBenchmark {
+    private static final int POPULAR_FILM_COUNT = 10;
+
+    @Param({"filmDBStorage", "inMemoryFilmStorage"})
+    private String storage;
+
+    @Param("1000")
+    private int filmCount;
+
+    @Param("1000")
+    private int userCount;
+
+    @Param("20")
+    private int likesPerFilm;
+
+    private ConfigurableApplicationContext context;
+    private FilmStorage filmStorage;
+    private int[] filmIds;
+    private int[] userIds;
+
+    @Setup
+    public void setUp() {
+        context = BenchmarkData.startContext();
+        filmStorage = context.getBean(storage, FilmStorage.class);
+        Random random = new Random(42);
+        userIds = BenchmarkData.seedUsers(context.getBean("UserDbStorage", UserStorage.class), userCount, 0, random);
+        filmIds = BenchmarkData.seedFilms(filmStorage, filmCount, likesPerFilm, userIds, random);
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public List<Film> getAllFilms() {
+        return filmStorage.getAllFilms();
+    }
+
+    @Benchmark
+    public List<Film> getMostPopularFilms() {
+        return filmStorage.getMostPopularFilms(POPULAR_FILM_COUNT);
+    }
+
+    @Benchmark
+    public boolean addLike() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int filmId = filmIds[random.nextInt(filmIds.length)];
+        int userId = userIds[random.nextInt(userIds.length)];
+        return random.nextBoolean() ? filmStorage.addLike(filmId, userId) : filmStorage.removeLike(filmId, userId);
+    }
+}
@@ -0,0 +1,68 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.service.AdjacencyIndex;
+import ru.yandex.practicum.filmorate.storage.user.InMemoryUserStorage;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(4)
+public class FriendGraphBenchmark {
+    private static final int USER_COUNT = 10_000;
+    private static final int FRIENDS_PER_USER = 50;
+
+    private InMemoryUserStorage userStorage;
+    private AdjacencyIndex adjacencyIndex;
+
+    @Setup
+    public void setUp() {
+        userStorage = new InMemoryUserStorage();
+        for (int i = 0; i < USER_COUNT; i++) {
+            userStorage.addUser(User.builder().login("login" + i).email("user" + i + "@yandex.ru")
+                    .birthday(LocalDate.of(2000, 1, 1)).build());
+        }
+        Random random = new Random(42);
+        for (int userId = 1; userId <= USER_COUNT; userId++) {
+            for (int i = 0; i < FRIENDS_PER_USER; i++) {
+                userStorage.addFriend(userId, 1 + random.nextInt(USER_COUNT));
+            }
+        }
+        adjacencyIndex = new AdjacencyIndex();
+        adjacencyIndex.rebuildFriends(userStorage::streamFriendships);
+    }
+
+    @Benchmark
+    public void mixedFriendOperations(Blackhole blackhole) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int userId = 1 + random.nextInt(USER_COUNT);
+        int otherUserId = 1 + random.nextInt(USER_COUNT);
+        int operation = random.nextInt(100);
+        if (operation < 40) {
+            if (userStorage.addFriend(userId, otherUserId)) {
+                adjacencyIndex.addFriend(userId, otherUserId);
+            }
+        } else if (operation < 80) {
+            if (userStorage.removeFriend(userId, otherUserId)) {
+                adjacencyIndex.removeFriend(userId, otherUserId);
+            }
+        } else if (operation < 95) {
+            blackhole.consume(userStorage.getUsersByIds(Arrays.stream(
+                    adjacencyIndex.getCommonFriendIds(userId, otherUserId)).boxed().collect(Collectors.toList())));
+        } else {
+            blackhole.consume(userStorage.getUserFriends(userId));
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import ru.yandex.practicum.filmorate.model.Friendship;
+import ru.yandex.practicum.filmorate.service.FriendGraph;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FriendSuggestionsBenchmark {
+    private static final int USER_COUNT = 100_000;
+    private static final int FRIENDS_PER_USER = 50;
+    private static final int HUB_COUNT = 100;
+    private static final int FRIENDS_PER_HUB = 5_000;
+    private static final int SUGGESTION_LIMIT = 20;
+    private static final int WORK_BUDGET = 1_000_000;
+
+    private FriendGraph friendGraph;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        List<Friendship> friendships = new ArrayList<>();
+        for (int userId = 1; userId <= USER_COUNT; userId++) {
+            int friendCount = userId <= HUB_COUNT ? FRIENDS_PER_HUB : FRIENDS_PER_USER;
+            for (int i = 0; i < friendCount; i++) {
+                friendships.add(new Friendship(userId, 1 + random.nextInt(USER_COUNT)));
+            }
+        }
+        friendGraph = new FriendGraph();
+        friendGraph.rebuild(friendships.stream().distinct()::forEach);
+    }
+
+    @Benchmark
+    public int[] suggestionsForUserWith5kFriends() {
+        int userId = 1 + ThreadLocalRandom.current().nextInt(HUB_COUNT);
+        return friendGraph.getFriendSuggestions(userId, SUGGESTION_LIMIT, WORK_BUDGET);
+    }
+
+    @Benchmark
+    public void friendUpdate() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int userId = 1 + random.nextInt(USER_COUNT);
+        int friendId = 1 + random.nextInt(USER_COUNT);
+        if (random.nextBoolean()) {
+            friendGraph.addFriend(userId, friendId);
+        } else {
+            friendGraph.removeFriend(userId, friendId);
+        }
+    }
+}
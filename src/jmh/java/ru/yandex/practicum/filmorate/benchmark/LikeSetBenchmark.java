@@ -0,0 +1,68 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jol.info.GraphLayout;
+import ru.yandex.practicum.filmorate.util.IntHashSet;
+
+import java.io.OutputStream;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LikeSetBenchmark {
+    private static final ObjectMapper MAPPER = new ObjectMapper().findAndRegisterModules();
+
+    @Param({"1000000"})
+    private int likeCount;
+
+    private Set<Integer> boxedLikes;
+    private IntHashSet primitiveLikes;
+
+    @Setup
+    public void setUp() {
+        boxedLikes = new HashSet<>();
+        primitiveLikes = new IntHashSet();
+        for (int userId = 1; userId <= likeCount; userId++) {
+            boxedLikes.add(userId);
+            primitiveLikes.add(userId);
+        }
+        System.out.printf("%nRetained size of %d likes: HashSet<Integer> %d bytes, IntHashSet %d bytes%n",
+                likeCount, GraphLayout.parseInstance(boxedLikes).totalSize(),
+                GraphLayout.parseInstance(primitiveLikes).totalSize());
+    }
+
+    @Benchmark
+    public Set<Integer> buildBoxedLikes() {
+        Set<Integer> likes = new HashSet<>();
+        for (int userId = 1; userId <= likeCount; userId++) {
+            likes.add(userId);
+        }
+        return likes;
+    }
+
+    @Benchmark
+    public IntHashSet buildPrimitiveLikes() {
+        IntHashSet likes = new IntHashSet();
+        for (int userId = 1; userId <= likeCount; userId++) {
+            likes.add(userId);
+        }
+        return likes;
+    }
+
+    @Benchmark
+    public void serializeBoxedLikes() throws Exception {
+        MAPPER.writeValue(OutputStream.nullOutputStream(), boxedLikes);
+    }
+
+    @Benchmark
+    public void serializePrimitiveLikes() throws Exception {
+        MAPPER.writeValue(OutputStream.nullOutputStream(), primitiveLikes);
+    }
+}
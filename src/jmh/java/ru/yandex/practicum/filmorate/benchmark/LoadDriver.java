@@ -0,0 +1,318 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.HdrHistogram.Histogram;
+import org.springframework.boot.Banner;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.servlet.context.ServletWebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import ru.yandex.practicum.filmorate.FilmorateApplication;
+import ru.yandex.practicum.filmorate.service.FilmService;
+import ru.yandex.practicum.filmorate.service.RecommendationService;
+import ru.yandex.practicum.filmorate.service.UserService;
+import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.user.UserStorage;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+public class LoadDriver {
+    private static final long HIGHEST_TRACKABLE_MICROS = TimeUnit.MINUTES.toMicros(1);
+    private static final String DEFAULT_MIX = "GET_FILM:30,GET_POPULAR_FILMS:20,ADD_LIKE:10,REMOVE_LIKE:10," +
+            "GET_FRIENDS:10,GET_COMMON_FRIENDS:10,ADD_FRIEND:5,REMOVE_FRIEND:5";
+
+    private final Map<String, String> settings;
+    private final int[] filmIds;
+    private final int[] userIds;
+    private final Operation[] operations;
+    private final int[] cumulativeWeights;
+    private final HttpClient httpClient = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+    private String baseUrl;
+
+    private LoadDriver(Map<String, String> settings, int[] filmIds, int[] userIds) {
+        this.settings = settings;
+        this.filmIds = filmIds;
+        this.userIds = userIds;
+        Map<Operation, Integer> mix = parseMix(settings.get("mix"));
+        operations = mix.keySet().toArray(new Operation[0]);
+        cumulativeWeights = new int[operations.length];
+        int totalWeight = 0;
+        for (int i = 0; i < operations.length; i++) {
+            totalWeight += mix.get(operations[i]);
+            cumulativeWeights[i] = totalWeight;
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> settings = parseSettings(args);
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(FilmorateApplication.class)
+                .web(WebApplicationType.SERVLET)
+                .bannerMode(Banner.Mode.OFF)
+                .logStartupInfo(false)
+                .properties("server.port=0",
+                        "spring.datasource.url=jdbc:h2:mem:load-" + UUID.randomUUID(),
+                        "logging.level.root=WARN")
+                .run()) {
+            Random random = new Random(42);
+            int[] userIds = BenchmarkData.seedUsers(context.getBean("UserDbStorage", UserStorage.class),
+                    intSetting(settings, "users"), intSetting(settings, "friendsPerUser"), random);
+            int[] filmIds = BenchmarkData.seedFilms(context.getBean("filmDBStorage", FilmStorage.class),
+                    intSetting(settings, "films"), intSetting(settings, "likesPerFilm"), userIds, random);
+            context.getBean(FilmService.class).rebuildPopularityIndex();
+            context.getBean(UserService.class).rebuildFriendIndexes();
+            context.getBean(RecommendationService.class).rebuildLikeMatrix();
+
+            LoadDriver driver = new LoadDriver(settings, filmIds, userIds);
+            driver.baseUrl = "http://localhost:"
+                    + ((ServletWebServerApplicationContext) context).getWebServer().getPort();
+            Map<String, Object> report = driver.run();
+
+            File reportFile = new File(settings.get("report"));
+            new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT).writeValue(reportFile, report);
+            System.out.println("Load report written to " + reportFile.getAbsolutePath());
+        }
+    }
+
+    private Map<String, Object> run() throws InterruptedException {
+        int clients = intSetting(settings, "clients");
+        long warmupNanos = TimeUnit.SECONDS.toNanos(intSetting(settings, "warmupSeconds"));
+        long durationNanos = TimeUnit.SECONDS.toNanos(intSetting(settings, "durationSeconds"));
+        long measureFrom = System.nanoTime() + warmupNanos;
+        long measureTo = measureFrom + durationNanos;
+
+        List<Client> workers = new ArrayList<>(clients);
+        for (int i = 0; i < clients; i++) {
+            Client client = new Client(measureFrom, measureTo);
+            client.setName("load-client-" + i);
+            workers.add(client);
+            client.start();
+        }
+        for (Client client : workers) {
+            client.join();
+        }
+
+        Map<Operation, Histogram> latencies = new EnumMap<>(Operation.class);
+        Map<Operation, Long> errors = new EnumMap<>(Operation.class);
+        for (Client client : workers) {
+            client.latencies.forEach((operation, histogram) ->
+                    latencies.computeIfAbsent(operation, key -> newHistogram()).add(histogram));
+            client.errors.forEach((operation, count) -> errors.merge(operation, count, Long::sum));
+        }
+        return buildReport(latencies, errors, durationNanos);
+    }
+
+    private Map<String, Object> buildReport(Map<Operation, Histogram> latencies, Map<Operation, Long> errors,
+                                            long durationNanos) {
+        double seconds = durationNanos / 1e9;
+        Map<String, Object> endpoints = new LinkedHashMap<>();
+        long totalRequests = 0;
+        long totalErrors = 0;
+        for (Operation operation : operations) {
+            Histogram histogram = latencies.getOrDefault(operation, newHistogram());
+            long operationErrors = errors.getOrDefault(operation, 0L);
+            totalRequests += histogram.getTotalCount();
+            totalErrors += operationErrors;
+
+            Map<String, Object> endpoint = new LinkedHashMap<>();
+            endpoint.put("requests", histogram.getTotalCount());
+            endpoint.put("errors", operationErrors);
+            endpoint.put("throughputPerSecond", round(histogram.getTotalCount() / seconds));
+            endpoint.put("meanMs", millis(histogram.getMean()));
+            endpoint.put("p50Ms", millis(histogram.getValueAtPercentile(50)));
+            endpoint.put("p99Ms", millis(histogram.getValueAtPercentile(99)));
+            endpoint.put("p999Ms", millis(histogram.getValueAtPercentile(99.9)));
+            endpoint.put("maxMs", millis(histogram.getMaxValue()));
+            endpoints.put(operation.endpoint, endpoint);
+            System.out.printf("%-45s %8d req %8.1f req/s p50 %7.2f ms p99 %7.2f ms p999 %7.2f ms errors %d%n",
+                    operation.endpoint, histogram.getTotalCount(), histogram.getTotalCount() / seconds,
+                    histogram.getValueAtPercentile(50) / 1000.0, histogram.getValueAtPercentile(99) / 1000.0,
+                    histogram.getValueAtPercentile(99.9) / 1000.0, operationErrors);
+        }
+
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("settings", new TreeMap<>(settings));
+        report.put("requests", totalRequests);
+        report.put("errors", totalErrors);
+        report.put("throughputPerSecond", round(totalRequests / seconds));
+        report.put("endpoints", endpoints);
+        return report;
+    }
+
+    private HttpRequest buildRequest(Operation operation, ThreadLocalRandom random) {
+        int filmId = filmIds[random.nextInt(filmIds.length)];
+        int userId = userIds[random.nextInt(userIds.length)];
+        int otherUserId = userIds[random.nextInt(userIds.length)];
+        String path;
+        String method = "GET";
+        switch (operation) {
+            case GET_FILM:
+                path = "/films/" + filmId;
+                break;
+            case GET_POPULAR_FILMS:
+                path = "/films/popular?count=10";
+                break;
+            case ADD_LIKE:
+                path = "/films/" + filmId + "/like/" + userId;
+                method = "PUT";
+                break;
+            case REMOVE_LIKE:
+                path = "/films/" + filmId + "/like/" + userId;
+                method = "DELETE";
+                break;
+            case GET_FRIENDS:
+                path = "/users/" + userId + "/friends";
+                break;
+            case GET_COMMON_FRIENDS:
+                path = "/users/" + userId + "/friends/common/" + otherUserId;
+                break;
+            case ADD_FRIEND:
+                path = "/users/" + userId + "/friends/" + otherUserId;
+                method = "PUT";
+                break;
+            default:
+                path = "/users/" + userId + "/friends/" + otherUserId;
+                method = "DELETE";
+        }
+        return HttpRequest.newBuilder(URI.create(baseUrl + path))
+                .timeout(Duration.ofSeconds(30))
+                .method(method, HttpRequest.BodyPublishers.noBody())
+                .build();
+    }
+
+    private Operation nextOperation(ThreadLocalRandom random) {
+        int value = random.nextInt(cumulativeWeights[cumulativeWeights.length - 1]);
+        for (int i = 0; i < cumulativeWeights.length; i++) {
+            if (value < cumulativeWeights[i]) {
+                return operations[i];
+            }
+        }
+        return operations[operations.length - 1];
+    }
+
+    private static Map<String, String> parseSettings(String[] args) {
+        Map<String, String> settings = new LinkedHashMap<>();
+        settings.put("users", "10000");
+        settings.put("films", "10000");
+        settings.put("likesPerFilm", "20");
+        settings.put("friendsPerUser", "20");
+        settings.put("clients", "16");
+        settings.put("warmupSeconds", "10");
+        settings.put("durationSeconds", "30");
+        settings.put("mix", DEFAULT_MIX);
+        settings.put("report", "target/load-report.json");
+        for (String arg : args) {
+            if (arg.isBlank()) {
+                continue;
+            }
+            int separator = arg.indexOf('=');
+            if (!arg.startsWith("--") || separator < 0) {
+                throw new IllegalArgumentException("Аргумент должен иметь вид --name=value: " + arg);
+            }
+            String name = arg.substring(2, separator);
+            if (!settings.containsKey(name)) {
+                throw new IllegalArgumentException("Неизвестный параметр " + name);
+            }
+            settings.put(name, arg.substring(separator + 1));
+        }
+        return settings;
+    }
+
+    private static Map<Operation, Integer> parseMix(String mix) {
+        Map<Operation, Integer> weights = new EnumMap<>(Operation.class);
+        for (String entry : mix.split(",")) {
+            String[] parts = entry.trim().split(":");
+            int weight = Integer.parseInt(parts[1].trim());
+            if (weight > 0) {
+                weights.put(Operation.valueOf(parts[0].trim()), weight);
+            }
+        }
+        if (weights.isEmpty()) {
+            throw new IllegalArgumentException("В смеси нагрузки нет ни одной операции");
+        }
+        return weights;
+    }
+
+    private static int intSetting(Map<String, String> settings, String name) {
+        return Integer.parseInt(settings.get(name));
+    }
+
+    private static Histogram newHistogram() {
+        return new Histogram(HIGHEST_TRACKABLE_MICROS, 3);
+    }
+
+    private static double millis(double micros) {
+        return round(micros / 1000.0);
+    }
+
+    private static double round(double value) {
+        return Math.round(value * 1000.0) / 1000.0;
+    }
+
+    private enum Operation {
+        GET_FILM("GET /films/{id}"),
+        GET_POPULAR_FILMS("GET /films/popular"),
+        ADD_LIKE("PUT /films/{id}/like/{userId}"),
+        REMOVE_LIKE("DELETE /films/{id}/like/{userId}"),
+        GET_FRIENDS("GET /users/{id}/friends"),
+        GET_COMMON_FRIENDS("GET /users/{id}/friends/common/{otherId}"),
+        ADD_FRIEND("PUT /users/{id}/friends/{friendId}"),
+        REMOVE_FRIEND("DELETE /users/{id}/friends/{friendId}");
+
+        private final String endpoint;
+
+        Operation(String endpoint) {
+            this.endpoint = endpoint;
+        }
+    }
+
+    private class Client extends Thread {
+        private final long measureFrom;
+        private final long measureTo;
+        private final Map<Operation, Histogram> latencies = new EnumMap<>(Operation.class);
+        private final Map<Operation, Long> errors = new EnumMap<>(Operation.class);
+
+        private Client(long measureFrom, long measureTo) {
+            this.measureFrom = measureFrom;
+            this.measureTo = measureTo;
+        }
+
+        @Override
+        public void run() {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            long now = System.nanoTime();
+            while (now < measureTo) {
+                Operation operation = nextOperation(random);
+                HttpRequest request = buildRequest(operation, random);
+                boolean failed;
+                try {
+                    failed = httpClient.send(request, HttpResponse.BodyHandlers.discarding()).statusCode() >= 400;
+                } catch (IOException e) {
+                    failed = true;
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                long finishedAt = System.nanoTime();
+                if (now >= measureFrom && finishedAt <= measureTo) {
+                    latencies.computeIfAbsent(operation, key -> newHistogram())
+                            .recordValue(Math.min(TimeUnit.NANOSECONDS.toMicros(finishedAt - now),
+                                    HIGHEST_TRACKABLE_MICROS));
+                    if (failed) {
+                        errors.merge(operation, 1L, Long::sum);
+                    }
+                }
+                now = finishedAt;
+            }
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import ru.yandex.practicum.filmorate.model.FilmLike;
+import ru.yandex.practicum.filmorate.service.LikeMatrix;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = "-Xmx2g")
+public class RecommendationBenchmark {
+    private static final int USER_COUNT = 100_000;
+    private static final int FILM_COUNT = 20_000;
+    private static final int LIKES_PER_USER = 10;
+    private static final int NEIGHBOUR_COUNT = 50;
+    private static final int RECOMMENDATION_COUNT = 100;
+
+    private List<FilmLike> likes;
+    private LikeMatrix likeMatrix;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        likes = new ArrayList<>(USER_COUNT * LIKES_PER_USER);
+        for (int userId = 1; userId <= USER_COUNT; userId++) {
+            for (int i = 0; i < LIKES_PER_USER; i++) {
+                double popularity = random.nextDouble();
+                likes.add(new FilmLike(1 + (int) (popularity * popularity * FILM_COUNT), userId));
+            }
+        }
+        likeMatrix = new LikeMatrix();
+        likeMatrix.rebuild(likes::forEach);
+    }
+
+    @TearDown
+    public void tearDown() {
+        likeMatrix.shutdown();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @Warmup(iterations = 2)
+    @Measurement(iterations = 5)
+    public LikeMatrix rebuildFromMillionLikes() {
+        LikeMatrix matrix = new LikeMatrix();
+        matrix.rebuild(likes::forEach);
+        matrix.shutdown();
+        return matrix;
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SampleTime)
+    public int[] recommendFilms() {
+        int userId = 1 + ThreadLocalRandom.current().nextInt(USER_COUNT);
+        return likeMatrix.recommendFilms(userId, NEIGHBOUR_COUNT, RECOMMENDATION_COUNT);
+    }
+}
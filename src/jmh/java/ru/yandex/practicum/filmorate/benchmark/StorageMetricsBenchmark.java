@@ -0,0 +1,68 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.prometheus.PrometheusConfig;
+import io.micrometer.prometheus.PrometheusMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.aop.framework.ProxyFactory;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import ru.yandex.practicum.filmorate.metrics.StorageMetricsConfig;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Rating;
+import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.film.InMemoryFilmStorage;
+
+import java.time.LocalDate;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class StorageMetricsBenchmark {
+    private static final int FILM_COUNT = 1000;
+
+    private FilmStorage plainStorage;
+    private FilmStorage measuredStorage;
+
+    @Setup
+    public void setUp() {
+        InMemoryFilmStorage filmStorage = new InMemoryFilmStorage();
+        for (int i = 0; i < FILM_COUNT; i++) {
+            filmStorage.addFilm(Film.builder().name("Film " + i).description("Description")
+                    .releaseDate(LocalDate.of(2000, 1, 1)).duration(90).mpa(new Rating(1, null)).build());
+        }
+        plainStorage = filmStorage;
+
+        DefaultListableBeanFactory beanFactory = new DefaultListableBeanFactory();
+        beanFactory.registerSingleton("meterRegistry", new PrometheusMeterRegistry(PrometheusConfig.DEFAULT));
+        ProxyFactory proxyFactory = new ProxyFactory(filmStorage);
+        proxyFactory.setProxyTargetClass(true);
+        proxyFactory.addAdvisor(StorageMetricsConfig.storageMetricsAdvisor(
+                beanFactory.getBeanProvider(MeterRegistry.class)));
+        measuredStorage = (FilmStorage) proxyFactory.getProxy();
+    }
+
+    @Benchmark
+    public boolean plainHasLike() {
+        return plainStorage.hasLike(1 + ThreadLocalRandom.current().nextInt(FILM_COUNT), 1);
+    }
+
+    @Benchmark
+    public boolean measuredHasLike() {
+        return measuredStorage.hasLike(1 + ThreadLocalRandom.current().nextInt(FILM_COUNT), 1);
+    }
+
+    @Benchmark
+    public Film plainGetFilmById() {
+        return plainStorage.getFilmById(1 + ThreadLocalRandom.current().nextInt(FILM_COUNT));
+    }
+
+    @Benchmark
+    public Film measuredGetFilmById() {
+        return measuredStorage.getFilmById(1 + ThreadLocalRandom.current().nextInt(FILM_COUNT));
+    }
+}
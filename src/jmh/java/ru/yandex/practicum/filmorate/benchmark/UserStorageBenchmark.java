@@ -0,0 +1,50 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.user.UserStorage;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class UserStorageBenchmark {
+
+    @Param({"UserDbStorage", "inMemoryUserStorage"})
+    private String storage;
+
+    @Param("1000")
+    private int userCount;
+
+    @Param("20")
+    private int friendsPerUser;
+
+    private ConfigurableApplicationContext context;
+    private UserStorage userStorage;
+    private int[] userIds;
+
+    @Setup
+    public void setUp() {
+        context = BenchmarkData.startContext();
+        userStorage = context.getBean(storage, UserStorage.class);
+        userIds = BenchmarkData.seedUsers(userStorage, userCount, friendsPerUser, new Random(42));
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public List<User> getUserFriends() {
+        return userStorage.getUserFriends(userIds[ThreadLocalRandom.current().nextInt(userIds.length)]);
+    }
+}
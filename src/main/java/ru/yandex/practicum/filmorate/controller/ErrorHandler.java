@@ -9,6 +9,8 @@ import org.springframework.web.bind.annotation.RestControllerAdvice;
 import ru.yandex.practicum.filmorate.exceptions.*;
 import ru.yandex.practicum.filmorate.model.ErrorResponse;
 
+import javax.validation.ConstraintViolationException;
+
 @RestControllerAdvice(assignableTypes = {FilmController.class, UserController.class,
         GenreController.class, RatingController.class})
 @Slf4j
@@ -20,6 +22,20 @@ public class ErrorHandler {
         return new ErrorResponse(e.getMessage());
     }
 
+    @ExceptionHandler(ConstraintViolationException.class)
+    @ResponseStatus(HttpStatus.BAD_REQUEST)
+    public ErrorResponse handleConstraintViolationException(ConstraintViolationException e) {
+        log.error("Error occurred", e);
+        return new ErrorResponse(e.getMessage());
+    }
+
+    @ExceptionHandler(FilmImportException.class)
+    @ResponseStatus(HttpStatus.BAD_REQUEST)
+    public ErrorResponse handleFilmImportException(FilmImportException e) {
+        log.error("Error occurred", e);
+        return new ErrorResponse(e.getMessage(), e.getAddedIds());
+    }
+
     @ExceptionHandler(UserAlreadyExistsException.class)
     @ResponseStatus(HttpStatus.CONFLICT)
     public ErrorResponse handleUserAlreadyExistsException(UserAlreadyExistsException e) {
@@ -34,6 +50,20 @@ public class ErrorHandler {
         return new ErrorResponse(e.getMessage());
     }
 
+    @ExceptionHandler(FilmUpdateConflictException.class)
+    @ResponseStatus(HttpStatus.CONFLICT)
+    public ErrorResponse handleFilmUpdateConflictException(FilmUpdateConflictException e) {
+        log.error("Error occurred", e);
+        return new ErrorResponse(e.getMessage());
+    }
+
+    @ExceptionHandler(UserUpdateConflictException.class)
+    @ResponseStatus(HttpStatus.CONFLICT)
+    public ErrorResponse handleUserUpdateConflictException(UserUpdateConflictException e) {
+        log.error("Error occurred", e);
+        return new ErrorResponse(e.getMessage());
+    }
+
     @ExceptionHandler(FilmNotFoundException.class)
     @ResponseStatus(HttpStatus.NOT_FOUND)
     public ErrorResponse handleFilmNotFoundException(FilmNotFoundException e) {
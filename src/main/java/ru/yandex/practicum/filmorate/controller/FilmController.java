@@ -1,25 +1,69 @@
 package ru.yandex.practicum.filmorate.controller;
 
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import ru.yandex.practicum.filmorate.model.Film;
 import ru.yandex.practicum.filmorate.service.FilmService;
 
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import javax.validation.ConstraintViolation;
+import javax.validation.ConstraintViolationException;
 import javax.validation.Valid;
+import javax.validation.Validator;
+import javax.validation.constraints.Max;
+import javax.validation.constraints.Positive;
+import java.io.IOException;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Set;
 
 @RestController
+@Validated
 @RequestMapping("/films")
 @RequiredArgsConstructor
 @Slf4j
 public class FilmController {
 
+    public static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+    public static final String NDJSON_VALUE = "application/x-ndjson";
+    private static final int DEFAULT_PAGE_SIZE = 100;
+    private static final int MAX_PAGE_SIZE = 1000;
+
     private final FilmService filmService;
+    private final JsonArrayStreamer jsonArrayStreamer;
+    private final ObjectMapper objectMapper;
+    private final Validator validator;
 
     @GetMapping()
-    public List<Film> getAllFilms() {
-        return filmService.getAllFilms();
+    public ResponseEntity<List<Film>> getAllFilms(
+            @RequestParam(value = "after", required = false) Integer after,
+            @Positive(message = "Размер страницы должен быть положительным")
+            @Max(value = MAX_PAGE_SIZE, message = "Размер страницы не должен превышать " + MAX_PAGE_SIZE)
+            @RequestParam(value = "limit", required = false) Integer limit) {
+        if (after == null && limit == null) {
+            return ResponseEntity.ok(filmService.getAllFilms());
+        }
+
+        int pageSize = limit == null ? DEFAULT_PAGE_SIZE : limit;
+        List<Film> films = filmService.getFilms(after == null ? 0 : after, pageSize);
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (films.size() == pageSize) {
+            response.header(NEXT_CURSOR_HEADER, String.valueOf(films.get(films.size() - 1).getId()));
+        }
+        return response.body(films);
+    }
+
+    @GetMapping(params = "stream=true")
+    public void streamAllFilms(HttpServletResponse response) throws IOException {
+        jsonArrayStreamer.write(response, filmService::streamAllFilms);
     }
 
     @PostMapping()
@@ -29,6 +73,22 @@ public class FilmController {
         return addedFilm;
     }
 
+    @PostMapping(value = "/batch", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public List<Integer> addFilms(@RequestBody List<@Valid Film> films) {
+        List<Integer> ids = filmService.addFilms(films.iterator());
+        log.info("{} films were added in batch", ids.size());
+        return ids;
+    }
+
+    @PostMapping(value = "/batch", consumes = NDJSON_VALUE)
+    public List<Integer> addFilms(HttpServletRequest request) throws IOException {
+        try (MappingIterator<Film> films = objectMapper.readerFor(Film.class).readValues(request.getInputStream())) {
+            List<Integer> ids = filmService.addFilms(validating(films));
+            log.info("{} films were added from NDJSON stream", ids.size());
+            return ids;
+        }
+    }
+
     @PutMapping()
     public Film updateFilm(@Valid @RequestBody Film film) {
         Film updatedFilm = filmService.updateFilm(film);
@@ -37,7 +97,10 @@ public class FilmController {
     }
 
     @GetMapping("/{id}")
-    public Film getFilmById(@PathVariable int id) {
+    public Film getFilmById(@PathVariable int id, WebRequest request) {
+        if (request.checkNotModified(filmService.getFilmTag(id))) {
+            return null;
+        }
         return filmService.getFilmById(id);
     }
 
@@ -58,7 +121,30 @@ public class FilmController {
     }
 
     @GetMapping("/popular")
-    public List<Film> getMostPopularFilms(@RequestParam(value = "count", defaultValue = "10") int count) {
+    public List<Film> getMostPopularFilms(@RequestParam(value = "count", defaultValue = "10") int count,
+                                          WebRequest request) {
+        if (request.checkNotModified(filmService.getFilmsTag())) {
+            return null;
+        }
         return filmService.getMostPopularFilms(count);
     }
+
+    private Iterator<Film> validating(Iterator<Film> films) {
+        return new Iterator<>() {
+            @Override
+            public boolean hasNext() {
+                return films.hasNext();
+            }
+
+            @Override
+            public Film next() {
+                Film film = films.next();
+                Set<ConstraintViolation<Film>> violations = validator.validate(film);
+                if (!violations.isEmpty()) {
+                    throw new ConstraintViolationException(violations);
+                }
+                return film;
+            }
+        };
+    }
 }
@@ -5,6 +5,7 @@ import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
 import ru.yandex.practicum.filmorate.model.Rating;
 import ru.yandex.practicum.filmorate.service.RatingService;
 
@@ -18,12 +19,18 @@ public class RatingController {
     private final RatingService ratingService;
 
     @GetMapping
-    public List<Rating> getAllRatings() {
+    public List<Rating> getAllRatings(WebRequest request) {
+        if (request.checkNotModified(ratingService.getRatingsTag())) {
+            return null;
+        }
         return ratingService.getAllRatings();
     }
 
     @GetMapping("/{id}")
-    public Rating getRatingById(@PathVariable int id) {
+    public Rating getRatingById(@PathVariable int id, WebRequest request) {
+        if (request.checkNotModified(ratingService.getRatingsTag())) {
+            return null;
+        }
         return ratingService.getRatingById(id);
     }
 }
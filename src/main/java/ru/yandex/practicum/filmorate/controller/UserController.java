@@ -2,24 +2,62 @@ package ru.yandex.practicum.filmorate.controller;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.ResponseEntity;
+import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import ru.yandex.practicum.filmorate.model.Film;
 import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.model.UserImportRequest;
+import ru.yandex.practicum.filmorate.service.FilmService;
+import ru.yandex.practicum.filmorate.service.RecommendationService;
 import ru.yandex.practicum.filmorate.service.UserService;
 
+import javax.servlet.http.HttpServletResponse;
 import javax.validation.Valid;
+import javax.validation.constraints.Max;
+import javax.validation.constraints.Positive;
+import java.io.IOException;
 import java.util.List;
+import java.util.Map;
 
 @RestController
+@Validated
 @RequestMapping("/users")
 @RequiredArgsConstructor
 @Slf4j
 public class UserController {
 
+    private static final int DEFAULT_PAGE_SIZE = 100;
+    private static final int MAX_PAGE_SIZE = 1000;
+
     private final UserService userService;
+    private final FilmService filmService;
+    private final RecommendationService recommendationService;
+    private final JsonArrayStreamer jsonArrayStreamer;
 
     @GetMapping()
-    public List<User> getAllUsers() {
-        return userService.getAllUsers();
+    public ResponseEntity<List<User>> getAllUsers(
+            @RequestParam(value = "after", required = false) Integer after,
+            @Positive(message = "Размер страницы должен быть положительным")
+            @Max(value = MAX_PAGE_SIZE, message = "Размер страницы не должен превышать " + MAX_PAGE_SIZE)
+            @RequestParam(value = "limit", required = false) Integer limit) {
+        if (after == null && limit == null) {
+            return ResponseEntity.ok(userService.getAllUsers());
+        }
+
+        int pageSize = limit == null ? DEFAULT_PAGE_SIZE : limit;
+        List<User> users = userService.getUsers(after == null ? 0 : after, pageSize);
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (users.size() == pageSize) {
+            response.header(FilmController.NEXT_CURSOR_HEADER, String.valueOf(users.get(users.size() - 1).getId()));
+        }
+        return response.body(users);
+    }
+
+    @GetMapping(params = "stream=true")
+    public void streamAllUsers(HttpServletResponse response) throws IOException {
+        jsonArrayStreamer.write(response, userService::streamAllUsers);
     }
 
     @PostMapping()
@@ -29,6 +67,13 @@ public class UserController {
         return addedUser;
     }
 
+    @PostMapping("/import")
+    public Map<String, Integer> importUsers(@Valid @RequestBody UserImportRequest request) {
+        Map<String, Integer> ids = userService.importUsers(request);
+        log.info("{} users and {} friendships were imported", ids.size(), request.getFriendships().size());
+        return ids;
+    }
+
     @PutMapping()
     public User updateUser(@Valid @RequestBody User user) {
         User updatedUser = userService.updateUser(user);
@@ -37,7 +82,10 @@ public class UserController {
     }
 
     @GetMapping("/{id}")
-    public User getUserById(@PathVariable int id) {
+    public User getUserById(@PathVariable int id, WebRequest request) {
+        if (request.checkNotModified(userService.getUserTag(id))) {
+            return null;
+        }
         return userService.getUserById(id);
     }
 
@@ -66,4 +114,28 @@ public class UserController {
     public List<User> getCommonFriends(@PathVariable int id, @PathVariable int otherId) {
         return userService.getCommonFriends(id, otherId);
     }
+
+    @GetMapping("/{id}/friends/suggestions")
+    public List<User> getFriendSuggestions(
+            @PathVariable int id,
+            @Positive(message = "Количество рекомендаций должно быть положительным")
+            @Max(value = MAX_PAGE_SIZE, message = "Количество рекомендаций не должно превышать " + MAX_PAGE_SIZE)
+            @RequestParam(value = "limit", defaultValue = "10") int limit) {
+        return userService.getFriendSuggestions(id, limit);
+    }
+
+    @GetMapping("/{id}/recommendations")
+    public List<Film> getRecommendations(
+            @PathVariable int id,
+            @Positive(message = "Количество рекомендаций должно быть положительным")
+            @Max(value = RecommendationService.MAX_RECOMMENDATIONS,
+                    message = "Количество рекомендаций не должно превышать " + RecommendationService.MAX_RECOMMENDATIONS)
+            @RequestParam(value = "limit", defaultValue = "10") int limit) {
+        return recommendationService.getRecommendations(id, limit);
+    }
+
+    @GetMapping("/{id}/films/common/{otherId}")
+    public List<Film> getCommonFilms(@PathVariable int id, @PathVariable int otherId) {
+        return filmService.getCommonFilms(id, otherId);
+    }
 }
@@ -0,0 +1,16 @@
+package ru.yandex.practicum.filmorate.exceptions;
+
+import java.util.List;
+
+public class FilmImportException extends RuntimeException {
+    private final List<Integer> addedIds;
+
+    public FilmImportException(String message, List<Integer> addedIds, Throwable cause) {
+        super(message, cause);
+        this.addedIds = addedIds;
+    }
+
+    public List<Integer> getAddedIds() {
+        return addedIds;
+    }
+}
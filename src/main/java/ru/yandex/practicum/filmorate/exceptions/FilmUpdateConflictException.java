@@ -0,0 +1,8 @@
+package ru.yandex.practicum.filmorate.exceptions;
+
+public class FilmUpdateConflictException extends RuntimeException {
+
+    public FilmUpdateConflictException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,8 @@
+package ru.yandex.practicum.filmorate.exceptions;
+
+public class UserUpdateConflictException extends RuntimeException {
+
+    public UserUpdateConflictException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,54 @@
+package ru.yandex.practicum.filmorate.metrics;
+
+import java.util.List;
+import java.util.regex.Pattern;
+
+public final class QueryCounter {
+    private static final ThreadLocal<QueryStats> CURRENT = new ThreadLocal<>();
+    private static final Pattern STRING_LITERAL = Pattern.compile("'(?:[^']|'')*'");
+    private static final Pattern NUMBER_LITERAL = Pattern.compile("\\b\\d+(?:\\.\\d+)?\\b");
+    private static final Pattern PLACEHOLDER_LIST = Pattern.compile("\\(\\s*\\?(?:\\s*,\\s*\\?)+\\s*\\)");
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    private QueryCounter() {
+    }
+
+    public static QueryStats start() {
+        QueryStats stats = new QueryStats(CURRENT.get());
+        CURRENT.set(stats);
+        return stats;
+    }
+
+    public static void stop(QueryStats stats) {
+        if (stats.getParent() == null) {
+            CURRENT.remove();
+        } else {
+            CURRENT.set(stats.getParent());
+        }
+    }
+
+    static void record(String sql, int statementCount) {
+        QueryStats stats = CURRENT.get();
+        if (stats != null) {
+            stats.record(shapeOf(sql), statementCount);
+        }
+    }
+
+    static void recordBatch(List<String> sqls) {
+        QueryStats stats = CURRENT.get();
+        if (stats != null && !sqls.isEmpty()) {
+            stats.record(String.join("; ", sqls.stream().map(QueryCounter::shapeOf).distinct()
+                    .toArray(String[]::new)), sqls.size());
+        }
+    }
+
+    static String shapeOf(String sql) {
+        if (sql == null) {
+            return "?";
+        }
+        String shape = STRING_LITERAL.matcher(sql).replaceAll("?");
+        shape = NUMBER_LITERAL.matcher(shape).replaceAll("?");
+        shape = PLACEHOLDER_LIST.matcher(shape).replaceAll("(?)");
+        return WHITESPACE.matcher(shape).replaceAll(" ").trim().toLowerCase();
+    }
+}
@@ -0,0 +1,66 @@
+package ru.yandex.practicum.filmorate.metrics;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.Map;
+
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class QueryCountingFilter extends OncePerRequestFilter {
+    public static final String STATEMENTS_METRIC = "filmorate.http.sql.statements";
+    public static final String ROUND_TRIPS_METRIC = "filmorate.http.sql.round-trips";
+
+    private final MeterRegistry meterRegistry;
+
+    @Value("${filmorate.sql.repeated-statement-threshold}")
+    private int repeatedStatementThreshold;
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response,
+                                    FilterChain filterChain) throws ServletException, IOException {
+        QueryStats stats = QueryCounter.start();
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            QueryCounter.stop(stats);
+            report(request, stats);
+        }
+    }
+
+    private void report(HttpServletRequest request, QueryStats stats) {
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        String uri = pattern == null ? "UNKNOWN" : pattern.toString();
+        summary(STATEMENTS_METRIC, "Число SQL-выражений за HTTP-запрос", request, uri)
+                .record(stats.getStatements());
+        summary(ROUND_TRIPS_METRIC, "Число обращений к базе за HTTP-запрос", request, uri)
+                .record(stats.getRoundTrips());
+        log.debug("{} {}: {}", request.getMethod(), uri, stats);
+
+        Map.Entry<String, Integer> mostRepeated = stats.getMostRepeatedShape();
+        if (repeatedStatementThreshold > 0 && mostRepeated != null
+                && mostRepeated.getValue() > repeatedStatementThreshold) {
+            log.warn("Possible N+1 in {} {}: statement executed {} times: {}", request.getMethod(), uri,
+                    mostRepeated.getValue(), mostRepeated.getKey());
+        }
+    }
+
+    private DistributionSummary summary(String name, String description, HttpServletRequest request, String uri) {
+        return DistributionSummary.builder(name)
+                .description(description)
+                .tags("method", request.getMethod(), "uri", uri)
+                .register(meterRegistry);
+    }
+}
@@ -0,0 +1,55 @@
+package ru.yandex.practicum.filmorate.metrics;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+public class QueryStats {
+    private final QueryStats parent;
+    private final Map<String, Integer> shapeToExecutions = new HashMap<>();
+    private int statements;
+    private int roundTrips;
+
+    QueryStats(QueryStats parent) {
+        this.parent = parent;
+    }
+
+    QueryStats getParent() {
+        return parent;
+    }
+
+    void record(String shape, int statementCount) {
+        for (QueryStats stats = this; stats != null; stats = stats.parent) {
+            stats.statements += statementCount;
+            stats.roundTrips++;
+            stats.shapeToExecutions.merge(shape, 1, Integer::sum);
+        }
+    }
+
+    public int getStatements() {
+        return statements;
+    }
+
+    public int getRoundTrips() {
+        return roundTrips;
+    }
+
+    public Map<String, Integer> getShapeToExecutions() {
+        return Collections.unmodifiableMap(shapeToExecutions);
+    }
+
+    public Map.Entry<String, Integer> getMostRepeatedShape() {
+        Map.Entry<String, Integer> mostRepeated = null;
+        for (Map.Entry<String, Integer> entry : shapeToExecutions.entrySet()) {
+            if (mostRepeated == null || entry.getValue() > mostRepeated.getValue()) {
+                mostRepeated = entry;
+            }
+        }
+        return mostRepeated;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d statements in %d round trips", statements, roundTrips);
+    }
+}
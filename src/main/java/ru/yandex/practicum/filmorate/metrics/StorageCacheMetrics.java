@@ -0,0 +1,53 @@
+package ru.yandex.practicum.filmorate.metrics;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.storage.film.CachedFilmStorage;
+import ru.yandex.practicum.filmorate.storage.genre.CachedGenreStorage;
+import ru.yandex.practicum.filmorate.storage.rating.CachedRatingStorage;
+
+import java.util.function.ToDoubleFunction;
+
+@Component
+@RequiredArgsConstructor
+public class StorageCacheMetrics implements MeterBinder {
+    public static final String CACHE_REQUESTS_METRIC = "filmorate.storage.cache.requests";
+    public static final String CACHE_EVICTIONS_METRIC = "filmorate.storage.cache.evictions";
+    public static final String CACHE_WEIGHT_METRIC = "filmorate.storage.cache.weight";
+
+    private final ObjectProvider<CachedGenreStorage> genreStorage;
+    private final ObjectProvider<CachedRatingStorage> ratingStorage;
+    private final ObjectProvider<CachedFilmStorage> filmStorage;
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        register(registry, "genres", "hit", metrics -> genreStorage.getObject().getHits());
+        register(registry, "genres", "miss", metrics -> genreStorage.getObject().getMisses());
+        register(registry, "ratings", "hit", metrics -> ratingStorage.getObject().getHits());
+        register(registry, "ratings", "miss", metrics -> ratingStorage.getObject().getMisses());
+        register(registry, "films", "hit", metrics -> filmStorage.getObject().getStats().hitCount());
+        register(registry, "films", "miss", metrics -> filmStorage.getObject().getStats().missCount());
+        FunctionCounter.builder(CACHE_EVICTIONS_METRIC, this,
+                        metrics -> filmStorage.getObject().getStats().evictionCount())
+                .description("Вытеснения из кеша фильмов")
+                .tags("cache", "films")
+                .register(registry);
+        Gauge.builder(CACHE_WEIGHT_METRIC, this, metrics -> filmStorage.getObject().getWeightedSize())
+                .description("Суммарный вес записей в кеше фильмов")
+                .tags("cache", "films")
+                .register(registry);
+    }
+
+    private void register(MeterRegistry registry, String cache, String result,
+                          ToDoubleFunction<StorageCacheMetrics> count) {
+        FunctionCounter.builder(CACHE_REQUESTS_METRIC, this, count)
+                .description("Обращения к кешам хранилищ")
+                .tags("cache", cache, "result", result)
+                .register(registry);
+    }
+}
@@ -0,0 +1,20 @@
+package ru.yandex.practicum.filmorate.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.aop.Advisor;
+import org.springframework.aop.aspectj.AspectJExpressionPointcut;
+import org.springframework.aop.support.DefaultPointcutAdvisor;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class StorageMetricsConfig {
+
+    @Bean
+    public static Advisor storageMetricsAdvisor(ObjectProvider<MeterRegistry> meterRegistry) {
+        AspectJExpressionPointcut pointcut = new AspectJExpressionPointcut();
+        pointcut.setExpression(StorageMetricsInterceptor.STORAGE_METHODS);
+        return new DefaultPointcutAdvisor(pointcut, new StorageMetricsInterceptor(meterRegistry));
+    }
+}
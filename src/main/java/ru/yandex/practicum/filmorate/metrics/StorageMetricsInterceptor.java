@@ -0,0 +1,107 @@
+package ru.yandex.practicum.filmorate.metrics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import lombok.RequiredArgsConstructor;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.springframework.aop.support.AopUtils;
+import org.springframework.beans.factory.ObjectProvider;
+import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.genre.GenreStorage;
+import ru.yandex.practicum.filmorate.storage.rating.RatingStorage;
+import ru.yandex.practicum.filmorate.storage.user.UserStorage;
+
+import java.lang.reflect.Method;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+@RequiredArgsConstructor
+public class StorageMetricsInterceptor implements MethodInterceptor {
+    public static final String CALLS_METRIC = "filmorate.storage.calls";
+    public static final String ROWS_METRIC = "filmorate.storage.rows";
+    public static final String ERRORS_METRIC = "filmorate.storage.errors";
+    public static final String STORAGE_METHODS =
+            "execution(* ru.yandex.practicum.filmorate.storage.film.FilmStorage.*(..))" +
+            " || execution(* ru.yandex.practicum.filmorate.storage.user.UserStorage.*(..))" +
+            " || execution(* ru.yandex.practicum.filmorate.storage.genre.GenreStorage.*(..))" +
+            " || execution(* ru.yandex.practicum.filmorate.storage.rating.RatingStorage.*(..))";
+
+    private static final List<Class<?>> STORAGE_TYPES =
+            List.of(FilmStorage.class, UserStorage.class, GenreStorage.class, RatingStorage.class);
+
+    private final ObjectProvider<MeterRegistry> meterRegistry;
+    private final Map<Method, MethodMeters> methodToMeters = new ConcurrentHashMap<>();
+
+    @Override
+    public Object invoke(MethodInvocation invocation) throws Throwable {
+        MethodMeters meters = methodToMeters.get(invocation.getMethod());
+        if (meters == null) {
+            meters = methodToMeters.computeIfAbsent(invocation.getMethod(),
+                    method -> new MethodMeters(AopUtils.getTargetClass(invocation.getThis()), method));
+        }
+        long start = System.nanoTime();
+        try {
+            Object result = invocation.proceed();
+            meters.recordRows(result);
+            return result;
+        } catch (Throwable e) {
+            meters.recordError(e);
+            throw e;
+        } finally {
+            meters.timer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private class MethodMeters {
+        private final Tags tags;
+        private final Timer timer;
+        private final DistributionSummary rows;
+        private final Map<Class<?>, Counter> exceptionToErrors = new ConcurrentHashMap<>();
+
+        private MethodMeters(Class<?> implementation, Method method) {
+            String storage = STORAGE_TYPES.stream().filter(type -> type.isAssignableFrom(implementation))
+                    .map(Class::getSimpleName).findFirst().orElse(implementation.getSimpleName());
+            tags = Tags.of("storage", storage, "implementation", implementation.getSimpleName(),
+                    "method", method.getName());
+            timer = Timer.builder(CALLS_METRIC)
+                    .description("Время выполнения методов хранилищ")
+                    .tags(tags)
+                    .register(meterRegistry.getObject());
+            Class<?> returnType = method.getReturnType();
+            rows = returnType.isPrimitive() || returnType == Boolean.class ? null
+                    : DistributionSummary.builder(ROWS_METRIC)
+                    .description("Количество строк, возвращённых методами хранилищ")
+                    .baseUnit("rows")
+                    .tags(tags)
+                    .register(meterRegistry.getObject());
+        }
+
+        private void recordRows(Object result) {
+            if (rows == null) {
+                return;
+            }
+            if (result instanceof Collection) {
+                rows.record(((Collection<?>) result).size());
+            } else if (result instanceof Map) {
+                rows.record(((Map<?, ?>) result).size());
+            } else {
+                rows.record(result == null ? 0 : 1);
+            }
+        }
+
+        private void recordError(Throwable e) {
+            exceptionToErrors.computeIfAbsent(e.getClass(), exception -> Counter.builder(ERRORS_METRIC)
+                    .description("Количество ошибок в методах хранилищ")
+                    .tags(tags)
+                    .tag("exception", exception.getSimpleName())
+                    .register(meterRegistry.getObject())).increment();
+        }
+    }
+}
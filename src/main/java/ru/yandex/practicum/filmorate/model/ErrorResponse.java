@@ -1,10 +1,17 @@
 package ru.yandex.practicum.filmorate.model;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
 import lombok.Getter;
 import lombok.RequiredArgsConstructor;
 
+import java.util.List;
+
 @RequiredArgsConstructor
+@AllArgsConstructor
 @Getter
 public class ErrorResponse {
     private final String message;
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private List<Integer> addedIds;
 }
@@ -1,15 +1,17 @@
 package ru.yandex.practicum.filmorate.model;
 
 import com.fasterxml.jackson.annotation.JsonFormat;
+import com.fasterxml.jackson.annotation.JsonInclude;
 import lombok.Builder;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
+import ru.yandex.practicum.filmorate.util.IntHashSet;
 import ru.yandex.practicum.filmorate.validation.annotations.ReleaseDate;
 
 import javax.validation.constraints.NotBlank;
 import javax.validation.constraints.Positive;
 import javax.validation.constraints.Size;
 import java.time.LocalDate;
-import java.util.Set;
 import java.util.TreeSet;
 
 @Data
@@ -27,7 +29,10 @@ public class Film {
     private int duration;
     private Rating mpa;
     private TreeSet<Genre> genres;
-    private Set<Integer> likes;
+    private IntHashSet likes;
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    @EqualsAndHashCode.Exclude
+    private Long version;
 
     public boolean addLike(int userId) {
         return likes.add(userId);
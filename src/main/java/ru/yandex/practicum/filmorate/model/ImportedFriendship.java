@@ -0,0 +1,17 @@
+package ru.yandex.practicum.filmorate.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.validation.constraints.NotBlank;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ImportedFriendship {
+    @NotBlank(message = "Внешний идентификатор пользователя не должен быть пустым")
+    private String userExternalId;
+    @NotBlank(message = "Внешний идентификатор друга не должен быть пустым")
+    private String friendExternalId;
+}
@@ -0,0 +1,22 @@
+package ru.yandex.practicum.filmorate.model;
+
+import com.fasterxml.jackson.annotation.JsonUnwrapped;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.validation.Valid;
+import javax.validation.constraints.NotBlank;
+import javax.validation.constraints.NotNull;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ImportedUser {
+    @NotBlank(message = "Внешний идентификатор пользователя не должен быть пустым")
+    private String externalId;
+    @Valid
+    @NotNull
+    @JsonUnwrapped
+    private User user;
+}
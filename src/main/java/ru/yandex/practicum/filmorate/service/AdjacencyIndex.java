@@ -0,0 +1,184 @@
+package ru.yandex.practicum.filmorate.service;
+
+import org.roaringbitmap.RoaringBitmap;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.model.FilmLike;
+import ru.yandex.practicum.filmorate.model.Friendship;
+import ru.yandex.practicum.filmorate.util.IntHashSet;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+
+@Component
+public class AdjacencyIndex {
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private Map<Integer, RoaringBitmap> userIdToFriendIds = new HashMap<>();
+    private Map<Integer, RoaringBitmap> userIdToFollowerIds = new HashMap<>();
+    private Map<Integer, RoaringBitmap> userIdToLikedFilmIds = new HashMap<>();
+    private Map<Integer, RoaringBitmap> filmIdToLikerIds = new HashMap<>();
+
+    public void rebuildFriends(Consumer<Consumer<Friendship>> friendships) {
+        Map<Integer, RoaringBitmap> friendIds = new HashMap<>();
+        Map<Integer, RoaringBitmap> followerIds = new HashMap<>();
+        friendships.accept(friendship -> {
+            row(friendIds, friendship.getUserId()).add(friendship.getFriendId());
+            row(followerIds, friendship.getFriendId()).add(friendship.getUserId());
+        });
+        friendIds.values().forEach(RoaringBitmap::runOptimize);
+        followerIds.values().forEach(RoaringBitmap::runOptimize);
+        write(() -> {
+            userIdToFriendIds = friendIds;
+            userIdToFollowerIds = followerIds;
+        });
+    }
+
+    public void rebuildLikes(Consumer<Consumer<FilmLike>> likes) {
+        Map<Integer, RoaringBitmap> likedFilmIds = new HashMap<>();
+        Map<Integer, RoaringBitmap> likerIds = new HashMap<>();
+        likes.accept(like -> {
+            row(likedFilmIds, like.getUserId()).add(like.getFilmId());
+            row(likerIds, like.getFilmId()).add(like.getUserId());
+        });
+        likedFilmIds.values().forEach(RoaringBitmap::runOptimize);
+        likerIds.values().forEach(RoaringBitmap::runOptimize);
+        write(() -> {
+            userIdToLikedFilmIds = likedFilmIds;
+            filmIdToLikerIds = likerIds;
+        });
+    }
+
+    public void addFriend(int userId, int friendId) {
+        write(() -> {
+            row(userIdToFriendIds, userId).add(friendId);
+            row(userIdToFollowerIds, friendId).add(userId);
+        });
+    }
+
+    public void removeFriend(int userId, int friendId) {
+        write(() -> {
+            removeFrom(userIdToFriendIds, userId, friendId);
+            removeFrom(userIdToFollowerIds, friendId, userId);
+        });
+    }
+
+    public void setFriends(int userId, IntHashSet friendIds) {
+        RoaringBitmap newFriendIds = RoaringBitmap.bitmapOf(friendIds.toIntArray());
+        write(() -> {
+            RoaringBitmap oldFriendIds = userIdToFriendIds.put(userId, newFriendIds);
+            if (oldFriendIds != null) {
+                RoaringBitmap.andNot(oldFriendIds, newFriendIds)
+                        .forEach((int friendId) -> removeFrom(userIdToFollowerIds, friendId, userId));
+            }
+            newFriendIds.forEach((int friendId) -> row(userIdToFollowerIds, friendId).add(userId));
+        });
+    }
+
+    public int[] removeUser(int userId) {
+        RoaringBitmap[] likedFilmIds = new RoaringBitmap[1];
+        write(() -> {
+            RoaringBitmap friendIds = userIdToFriendIds.remove(userId);
+            if (friendIds != null) {
+                friendIds.forEach((int friendId) -> removeFrom(userIdToFollowerIds, friendId, userId));
+            }
+            RoaringBitmap followerIds = userIdToFollowerIds.remove(userId);
+            if (followerIds != null) {
+                followerIds.forEach((int followerId) -> removeFrom(userIdToFriendIds, followerId, userId));
+            }
+            likedFilmIds[0] = userIdToLikedFilmIds.remove(userId);
+            if (likedFilmIds[0] != null) {
+                likedFilmIds[0].forEach((int filmId) -> removeFrom(filmIdToLikerIds, filmId, userId));
+            }
+        });
+        return likedFilmIds[0] == null ? new int[0] : likedFilmIds[0].toArray();
+    }
+
+    public void addLike(int filmId, int userId) {
+        write(() -> {
+            row(userIdToLikedFilmIds, userId).add(filmId);
+            row(filmIdToLikerIds, filmId).add(userId);
+        });
+    }
+
+    public void removeLike(int filmId, int userId) {
+        write(() -> {
+            removeFrom(userIdToLikedFilmIds, userId, filmId);
+            removeFrom(filmIdToLikerIds, filmId, userId);
+        });
+    }
+
+    public int[] setFilmLikes(int filmId, IntHashSet likerIds) {
+        RoaringBitmap newLikerIds = RoaringBitmap.bitmapOf(likerIds.toIntArray());
+        RoaringBitmap[] oldLikerIds = new RoaringBitmap[1];
+        write(() -> {
+            oldLikerIds[0] = filmIdToLikerIds.put(filmId, newLikerIds);
+            if (oldLikerIds[0] != null) {
+                RoaringBitmap.andNot(oldLikerIds[0], newLikerIds)
+                        .forEach((int userId) -> removeFrom(userIdToLikedFilmIds, userId, filmId));
+            }
+            newLikerIds.forEach((int userId) -> row(userIdToLikedFilmIds, userId).add(filmId));
+        });
+        return oldLikerIds[0] == null ? new int[0] : oldLikerIds[0].toArray();
+    }
+
+    public int[] removeFilm(int filmId) {
+        RoaringBitmap[] likerIds = new RoaringBitmap[1];
+        write(() -> {
+            likerIds[0] = filmIdToLikerIds.remove(filmId);
+            if (likerIds[0] != null) {
+                likerIds[0].forEach((int userId) -> removeFrom(userIdToLikedFilmIds, userId, filmId));
+            }
+        });
+        return likerIds[0] == null ? new int[0] : likerIds[0].toArray();
+    }
+
+    public int[] getCommonFriendIds(int userId, int otherUserId) {
+        return intersect(userIdToFriendIds, userId, otherUserId);
+    }
+
+    public int[] getCommonFilmIds(int userId, int otherUserId) {
+        return intersect(userIdToLikedFilmIds, userId, otherUserId);
+    }
+
+    private int[] intersect(Map<Integer, RoaringBitmap> rows, int rowId, int otherRowId) {
+        Lock readLock = lock.readLock();
+        readLock.lock();
+        try {
+            RoaringBitmap row = rows.get(rowId);
+            RoaringBitmap otherRow = rows.get(otherRowId);
+            if (row == null || otherRow == null) {
+                return new int[0];
+            }
+            return RoaringBitmap.and(row, otherRow).toArray();
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    private RoaringBitmap row(Map<Integer, RoaringBitmap> rows, int rowId) {
+        return rows.computeIfAbsent(rowId, id -> new RoaringBitmap());
+    }
+
+    private void removeFrom(Map<Integer, RoaringBitmap> rows, int rowId, int value) {
+        RoaringBitmap row = rows.get(rowId);
+        if (row != null) {
+            row.remove(value);
+            if (row.isEmpty()) {
+                rows.remove(rowId);
+            }
+        }
+    }
+
+    private void write(Runnable update) {
+        Lock writeLock = lock.writeLock();
+        writeLock.lock();
+        try {
+            update.run();
+        } finally {
+            writeLock.unlock();
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package ru.yandex.practicum.filmorate.service;
+
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+@Component
+public class FilmPopularityIndex {
+    private final TreeSet<Long> ranking = new TreeSet<>();
+    private final Map<Integer, Integer> filmIdToLikeCount = new HashMap<>();
+
+    public synchronized void rebuild(Map<Integer, Integer> likeCounts) {
+        ranking.clear();
+        filmIdToLikeCount.clear();
+        likeCounts.forEach(this::putFilm);
+    }
+
+    public synchronized void putFilm(int filmId, int likeCount) {
+        Integer previousLikeCount = filmIdToLikeCount.put(filmId, likeCount);
+        if (previousLikeCount != null) {
+            ranking.remove(rankingKey(previousLikeCount, filmId));
+        }
+        ranking.add(rankingKey(likeCount, filmId));
+    }
+
+    public synchronized void removeFilm(int filmId) {
+        Integer likeCount = filmIdToLikeCount.remove(filmId);
+        if (likeCount != null) {
+            ranking.remove(rankingKey(likeCount, filmId));
+        }
+    }
+
+    public synchronized void incrementLikes(int filmId) {
+        changeLikes(filmId, 1);
+    }
+
+    public synchronized void decrementLikes(int filmId) {
+        changeLikes(filmId, -1);
+    }
+
+    public synchronized List<Integer> getTopFilmIds(int count) {
+        List<Integer> filmIds = new ArrayList<>(Math.min(Math.max(count, 0), ranking.size()));
+        Iterator<Long> iterator = ranking.iterator();
+        while (filmIds.size() < count && iterator.hasNext()) {
+            filmIds.add((int) (iterator.next() & 0xFFFFFFFFL));
+        }
+        return filmIds;
+    }
+
+    public synchronized List<Integer> sortByPopularity(int[] filmIds) {
+        long[] keys = new long[filmIds.length];
+        for (int i = 0; i < filmIds.length; i++) {
+            keys[i] = rankingKey(filmIdToLikeCount.getOrDefault(filmIds[i], 0), filmIds[i]);
+        }
+        Arrays.sort(keys);
+        List<Integer> sortedFilmIds = new ArrayList<>(keys.length);
+        for (long key : keys) {
+            sortedFilmIds.add((int) (key & 0xFFFFFFFFL));
+        }
+        return sortedFilmIds;
+    }
+
+    private void changeLikes(int filmId, int delta) {
+        Integer likeCount = filmIdToLikeCount.get(filmId);
+        if (likeCount != null) {
+            putFilm(filmId, Math.max(likeCount + delta, 0));
+        }
+    }
+
+    private long rankingKey(int likeCount, int filmId) {
+        return ((long) (Integer.MAX_VALUE - likeCount) << 32) | (filmId & 0xFFFFFFFFL);
+    }
+}
@@ -2,12 +2,19 @@ package ru.yandex.practicum.filmorate.service;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import ru.yandex.practicum.filmorate.exceptions.FilmImportException;
 import ru.yandex.practicum.filmorate.model.Film;
 import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.film.LikeWriteBuffer;
 import ru.yandex.practicum.filmorate.storage.user.UserStorage;
 
+import javax.annotation.PostConstruct;
+import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
+import java.util.function.Consumer;
 
 
 @Service
@@ -15,48 +22,166 @@ import java.util.List;
 public class FilmService {
 
     private final FilmStorage filmStorage;
+    private final FilmPopularityIndex popularityIndex;
+    private final LikeWriteBuffer likeWriteBuffer;
     private final UserStorage userStorage;
+    private final AdjacencyIndex adjacencyIndex;
+    private final RecommendationService recommendationService;
+    private final VersionRegistry versionRegistry;
+
+    @Value("${filmorate.import.batch-size}")
+    private int importBatchSize;
 
     @Autowired
-    public FilmService(@Qualifier("filmDBStorage") FilmStorage filmStorage,
-                       @Qualifier("UserDbStorage") UserStorage userStorage) {
+    public FilmService(@Qualifier("cachedFilmStorage") FilmStorage filmStorage,
+                       FilmPopularityIndex popularityIndex,
+                       LikeWriteBuffer likeWriteBuffer,
+                       @Qualifier("UserDbStorage") UserStorage userStorage,
+                       AdjacencyIndex adjacencyIndex,
+                       RecommendationService recommendationService,
+                       VersionRegistry versionRegistry) {
         this.filmStorage = filmStorage;
+        this.popularityIndex = popularityIndex;
+        this.likeWriteBuffer = likeWriteBuffer;
         this.userStorage = userStorage;
+        this.adjacencyIndex = adjacencyIndex;
+        this.recommendationService = recommendationService;
+        this.versionRegistry = versionRegistry;
+    }
+
+    @PostConstruct
+    public void rebuildPopularityIndex() {
+        popularityIndex.rebuild(filmStorage.getLikeCounts());
+        adjacencyIndex.rebuildLikes(filmStorage::streamLikes);
     }
 
     public Film getFilmById(int id) {
-        return filmStorage.getFilmById(id);
+        Film film = filmStorage.getFilmById(id);
+        likeWriteBuffer.applyPendingLikes(List.of(film));
+        return film;
+    }
+
+    public String getFilmTag(int id) {
+        return versionRegistry.getFilmTag(id);
+    }
+
+    public String getFilmsTag() {
+        return versionRegistry.getFilmsTag();
     }
 
     public List<Film> getAllFilms() {
-        return filmStorage.getAllFilms();
+        List<Film> films = filmStorage.getAllFilms();
+        likeWriteBuffer.applyPendingLikes(films);
+        return films;
+    }
+
+    public void streamAllFilms(Consumer<Film> consumer) {
+        filmStorage.streamAllFilms(film -> {
+            likeWriteBuffer.applyPendingLikes(List.of(film));
+            consumer.accept(film);
+        });
+    }
+
+    public List<Film> getFilms(int afterId, int limit) {
+        List<Film> films = filmStorage.getFilms(afterId, limit);
+        likeWriteBuffer.applyPendingLikes(films);
+        return films;
     }
 
     public Film addFilm(Film film) {
-        return filmStorage.addFilm(film);
+        Film addedFilm = filmStorage.addFilm(film);
+        putFilmToIndexes(addedFilm);
+        return addedFilm;
+    }
+
+    public List<Integer> addFilms(Iterator<Film> films) {
+        List<Integer> ids = new ArrayList<>();
+        List<Film> chunk = new ArrayList<>(importBatchSize);
+        while (true) {
+            Film film;
+            try {
+                if (!films.hasNext()) {
+                    break;
+                }
+                film = films.next();
+            } catch (RuntimeException e) {
+                throw new FilmImportException(String.format("Ошибка в фильме №%d, добавлено фильмов: %d. %s",
+                        ids.size() + chunk.size() + 1, ids.size(), e.getMessage()), ids, e);
+            }
+            chunk.add(film);
+            if (chunk.size() == importBatchSize) {
+                addChunk(chunk, ids);
+                chunk = new ArrayList<>(importBatchSize);
+            }
+        }
+        if (!chunk.isEmpty()) {
+            addChunk(chunk, ids);
+        }
+        return ids;
     }
 
     public Film updateFilm(Film film) {
-        return filmStorage.updateFilm(film);
+        Film updatedFilm = filmStorage.updateFilm(film);
+        putFilmToIndexes(updatedFilm);
+        return updatedFilm;
     }
 
     public void addLike(int filmId, int userId) {
-        filmStorage.getFilmById(filmId);
-        userStorage.getUserById(userId);
-        filmStorage.addLike(filmId, userId);
+        boolean added = likeWriteBuffer.isEnabled() ? likeWriteBuffer.addLike(filmId, userId)
+                : filmStorage.addLike(filmId, userId);
+        if (added) {
+            popularityIndex.incrementLikes(filmId);
+            adjacencyIndex.addLike(filmId, userId);
+            recommendationService.addLike(filmId, userId);
+            versionRegistry.filmChanged(filmId);
+        }
     }
 
     public void removeLike(int filmId, int userId) {
-        filmStorage.getFilmById(filmId);
-        userStorage.getUserById(userId);
-        filmStorage.removeLike(filmId, userId);
+        boolean removed = likeWriteBuffer.isEnabled() ? likeWriteBuffer.removeLike(filmId, userId)
+                : filmStorage.removeLike(filmId, userId);
+        if (removed) {
+            popularityIndex.decrementLikes(filmId);
+            adjacencyIndex.removeLike(filmId, userId);
+            recommendationService.removeLike(filmId, userId);
+            versionRegistry.filmChanged(filmId);
+        }
     }
 
     public void removeFilm(int filmId) {
         filmStorage.deleteFilm(filmId);
+        popularityIndex.removeFilm(filmId);
+        int[] likerIds = adjacencyIndex.removeFilm(filmId);
+        recommendationService.removeFilm(filmId, likerIds);
+        versionRegistry.filmChanged(filmId);
     }
 
     public List<Film> getMostPopularFilms(int count) {
-        return filmStorage.getMostPopularFilms(count);
+        List<Film> films = filmStorage.getFilmsByIds(popularityIndex.getTopFilmIds(count));
+        likeWriteBuffer.applyPendingLikes(films);
+        return films;
+    }
+
+    public List<Film> getCommonFilms(int userId, int otherUserId) {
+        userStorage.getUserById(userId, false);
+        userStorage.getUserById(otherUserId, false);
+        int[] commonFilmIds = adjacencyIndex.getCommonFilmIds(userId, otherUserId);
+        List<Film> films = filmStorage.getFilmsByIds(popularityIndex.sortByPopularity(commonFilmIds));
+        likeWriteBuffer.applyPendingLikes(films);
+        return films;
+    }
+
+    private void addChunk(List<Film> chunk, List<Integer> ids) {
+        for (Film addedFilm : filmStorage.addFilms(chunk)) {
+            putFilmToIndexes(addedFilm);
+            ids.add(addedFilm.getId());
+        }
+    }
+
+    private void putFilmToIndexes(Film film) {
+        popularityIndex.putFilm(film.getId(), film.getLikes().size());
+        int[] previousLikerIds = adjacencyIndex.setFilmLikes(film.getId(), film.getLikes());
+        recommendationService.setFilmLikes(film.getId(), previousLikerIds, film.getLikes());
+        versionRegistry.filmChanged(film.getId());
     }
 }
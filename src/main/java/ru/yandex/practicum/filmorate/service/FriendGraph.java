@@ -0,0 +1,299 @@
+package ru.yandex.practicum.filmorate.service;
+
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.model.Friendship;
+import ru.yandex.practicum.filmorate.util.IntHashSet;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.function.IntConsumer;
+
+@Component
+public class FriendGraph {
+    private static final int MIN_COMPACTION_THRESHOLD = 1024;
+    private static final int OWN_OR_FRIEND = -1;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final ThreadLocal<Scratch> scratch = ThreadLocal.withInitial(Scratch::new);
+
+    private int[] offsets = new int[1];
+    private int[] targets = new int[0];
+    private final Map<Integer, IntHashSet> addedEdges = new HashMap<>();
+    private final Map<Integer, IntHashSet> removedEdges = new HashMap<>();
+    private final IntHashSet removedUserIds = new IntHashSet();
+    private int deltaSize;
+    private int maxUserId;
+
+    public void rebuild(Consumer<Consumer<Friendship>> friendships) {
+        EdgeList edges = new EdgeList();
+        friendships.accept(friendship -> edges.add(friendship.getUserId(), friendship.getFriendId()));
+        write(() -> {
+            addedEdges.clear();
+            removedEdges.clear();
+            removedUserIds.clear();
+            deltaSize = 0;
+            maxUserId = 0;
+            loadEdges(edges);
+        });
+    }
+
+    public void addFriend(int userId, int friendId) {
+        write(() -> {
+            if (!removeFromDelta(removedEdges, userId, friendId)
+                    && !rowContains(userId, friendId)
+                    && addedEdges.computeIfAbsent(userId, id -> new IntHashSet()).add(friendId)) {
+                deltaSize++;
+            }
+            maxUserId = Math.max(maxUserId, Math.max(userId, friendId));
+            compactIfNeeded();
+        });
+    }
+
+    public void removeFriend(int userId, int friendId) {
+        write(() -> {
+            if (!removeFromDelta(addedEdges, userId, friendId)
+                    && rowContains(userId, friendId)
+                    && removedEdges.computeIfAbsent(userId, id -> new IntHashSet()).add(friendId)) {
+                deltaSize++;
+            }
+            compactIfNeeded();
+        });
+    }
+
+    public void setFriends(int userId, IntHashSet friendIds) {
+        write(() -> {
+            IntHashSet currentFriendIds = new IntHashSet();
+            forEachFriend(userId, currentFriendIds::add);
+            currentFriendIds.forEachInt(friendId -> {
+                if (!friendIds.contains(friendId)) {
+                    removeFriend(userId, friendId);
+                }
+            });
+            friendIds.forEachInt(friendId -> {
+                if (!currentFriendIds.contains(friendId)) {
+                    addFriend(userId, friendId);
+                }
+            });
+        });
+    }
+
+    public void removeUser(int userId) {
+        write(() -> {
+            setFriends(userId, new IntHashSet());
+            removedUserIds.add(userId);
+            deltaSize++;
+            compactIfNeeded();
+        });
+    }
+
+    public int[] getFriendSuggestions(int userId, int limit, int workBudget) {
+        Lock readLock = lock.readLock();
+        readLock.lock();
+        try {
+            Scratch scratch = this.scratch.get();
+            int[] counts = scratch.counts(Math.max(maxUserId, userId) + 1);
+            IntArray touched = scratch.touched;
+            try {
+                counts[userId] = OWN_OR_FRIEND;
+                touched.add(userId);
+                IntArray friendIds = scratch.friendIds;
+                forEachFriend(userId, friendId -> {
+                    friendIds.add(friendId);
+                    counts[friendId] = OWN_OR_FRIEND;
+                    touched.add(friendId);
+                });
+
+                int work = friendIds.size;
+                for (int i = 0; i < friendIds.size && work < workBudget; i++) {
+                    work += forEachFriend(friendIds.values[i], candidateId -> {
+                        if (counts[candidateId] == OWN_OR_FRIEND || removedUserIds.contains(candidateId)) {
+                            return;
+                        }
+                        if (counts[candidateId]++ == 0) {
+                            touched.add(candidateId);
+                        }
+                    });
+                }
+
+                return topCandidates(counts, touched, limit);
+            } finally {
+                for (int i = 0; i < touched.size; i++) {
+                    counts[touched.values[i]] = 0;
+                }
+                touched.size = 0;
+                scratch.friendIds.size = 0;
+            }
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    private int[] topCandidates(int[] counts, IntArray touched, int limit) {
+        PriorityQueue<Long> heap = new PriorityQueue<>(Math.max(limit, 1));
+        for (int i = 0; i < touched.size; i++) {
+            int candidateId = touched.values[i];
+            if (counts[candidateId] <= 0) {
+                continue;
+            }
+            long key = rankingKey(counts[candidateId], candidateId);
+            if (heap.size() < limit) {
+                heap.add(key);
+            } else if (limit > 0 && key > heap.peek()) {
+                heap.poll();
+                heap.add(key);
+            }
+        }
+
+        int[] candidateIds = new int[heap.size()];
+        for (int i = candidateIds.length - 1; i >= 0; i--) {
+            candidateIds[i] = Integer.MAX_VALUE - (int) (heap.poll() & 0xFFFFFFFFL);
+        }
+        return candidateIds;
+    }
+
+    private long rankingKey(int mutualFriendCount, int candidateId) {
+        return ((long) mutualFriendCount << 32) | (Integer.MAX_VALUE - candidateId);
+    }
+
+    private int forEachFriend(int userId, IntConsumer consumer) {
+        int visited = 0;
+        IntHashSet removed = removedEdges.get(userId);
+        if (userId + 1 < offsets.length) {
+            for (int i = offsets[userId]; i < offsets[userId + 1]; i++) {
+                int friendId = targets[i];
+                if (removed == null || !removed.contains(friendId)) {
+                    consumer.accept(friendId);
+                }
+            }
+            visited += offsets[userId + 1] - offsets[userId];
+        }
+        IntHashSet added = addedEdges.get(userId);
+        if (added != null) {
+            added.forEachInt(consumer);
+            visited += added.size();
+        }
+        return visited;
+    }
+
+    private boolean rowContains(int userId, int friendId) {
+        return userId + 1 < offsets.length
+                && Arrays.binarySearch(targets, offsets[userId], offsets[userId + 1], friendId) >= 0;
+    }
+
+    private boolean removeFromDelta(Map<Integer, IntHashSet> delta, int userId, int friendId) {
+        IntHashSet friendIds = delta.get(userId);
+        if (friendIds == null || !friendIds.remove(friendId)) {
+            return false;
+        }
+        if (friendIds.isEmpty()) {
+            delta.remove(userId);
+        }
+        deltaSize--;
+        return true;
+    }
+
+    private void compactIfNeeded() {
+        if (deltaSize <= Math.max(MIN_COMPACTION_THRESHOLD, targets.length / 4)) {
+            return;
+        }
+        EdgeList edges = new EdgeList();
+        for (int userId = 0; userId <= maxUserId; userId++) {
+            if (removedUserIds.contains(userId)) {
+                continue;
+            }
+            int sourceId = userId;
+            forEachFriend(userId, friendId -> {
+                if (!removedUserIds.contains(friendId)) {
+                    edges.add(sourceId, friendId);
+                }
+            });
+        }
+        addedEdges.clear();
+        removedEdges.clear();
+        removedUserIds.clear();
+        deltaSize = 0;
+        loadEdges(edges);
+    }
+
+    private void loadEdges(EdgeList edges) {
+        int maxId = maxUserId;
+        for (int i = 0; i < edges.size; i++) {
+            maxId = Math.max(maxId, Math.max(edges.sources[i], edges.targets[i]));
+        }
+        int[] newOffsets = new int[maxId + 2];
+        for (int i = 0; i < edges.size; i++) {
+            newOffsets[edges.sources[i] + 1]++;
+        }
+        for (int i = 1; i < newOffsets.length; i++) {
+            newOffsets[i] += newOffsets[i - 1];
+        }
+        int[] newTargets = new int[edges.size];
+        int[] positions = Arrays.copyOf(newOffsets, newOffsets.length - 1);
+        for (int i = 0; i < edges.size; i++) {
+            newTargets[positions[edges.sources[i]]++] = edges.targets[i];
+        }
+        for (int userId = 0; userId <= maxId; userId++) {
+            Arrays.sort(newTargets, newOffsets[userId], newOffsets[userId + 1]);
+        }
+        offsets = newOffsets;
+        targets = newTargets;
+        maxUserId = maxId;
+    }
+
+    private void write(Runnable action) {
+        Lock writeLock = lock.writeLock();
+        writeLock.lock();
+        try {
+            action.run();
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    private static class EdgeList {
+        private int[] sources = new int[16];
+        private int[] targets = new int[16];
+        private int size;
+
+        private void add(int source, int target) {
+            if (size == sources.length) {
+                sources = Arrays.copyOf(sources, size * 2);
+                targets = Arrays.copyOf(targets, size * 2);
+            }
+            sources[size] = source;
+            targets[size] = target;
+            size++;
+        }
+    }
+
+    private static class IntArray {
+        private int[] values = new int[16];
+        private int size;
+
+        private void add(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+    }
+
+    private static class Scratch {
+        private int[] counts = new int[0];
+        private final IntArray touched = new IntArray();
+        private final IntArray friendIds = new IntArray();
+
+        private int[] counts(int size) {
+            if (counts.length < size) {
+                counts = new int[size];
+            }
+            return counts;
+        }
+    }
+}
@@ -3,19 +3,24 @@ package ru.yandex.practicum.filmorate.service;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 import ru.yandex.practicum.filmorate.model.Genre;
-import ru.yandex.practicum.filmorate.storage.genre.GenreStorage;
+import ru.yandex.practicum.filmorate.storage.genre.CachedGenreStorage;
 
 import java.util.List;
 
 @Service
 @RequiredArgsConstructor
 public class GenreService {
-    private final GenreStorage genreStorage;
+    private final CachedGenreStorage genreStorage;
+    private final VersionRegistry versionRegistry;
 
     public Genre getGenreById(int id) {
         return genreStorage.getGenreById(id);
     }
 
+    public String getGenresTag() {
+        return versionRegistry.tag(genreStorage.getVersion());
+    }
+
     public List<Genre> getAllGenres() {
         return genreStorage.getAllgenres();
     }
@@ -0,0 +1,253 @@
+package ru.yandex.practicum.filmorate.service;
+
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.model.FilmLike;
+import ru.yandex.practicum.filmorate.util.IntHashSet;
+
+import javax.annotation.PreDestroy;
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+
+@Component
+public class LikeMatrix {
+    private static final int[] EMPTY_ROW = new int[0];
+    private static final int SCAN_CHUNK_SIZE = 4096;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final ForkJoinPool pool = new ForkJoinPool();
+    private int[][] userIdToFilmIds = new int[0][];
+
+    public void rebuild(Consumer<Consumer<FilmLike>> likes) {
+        Map<Integer, IntHashSet> filmIdsByUserId = new HashMap<>();
+        likes.accept(like -> filmIdsByUserId.computeIfAbsent(like.getUserId(), id -> new IntHashSet())
+                .add(like.getFilmId()));
+        int maxUserId = filmIdsByUserId.keySet().stream().mapToInt(Integer::intValue).max().orElse(0);
+        int[][] rows = new int[maxUserId + 1][];
+        filmIdsByUserId.forEach((userId, filmIds) -> rows[userId] = sortedRow(filmIds));
+        write(() -> userIdToFilmIds = rows);
+    }
+
+    public void addLike(int filmId, int userId) {
+        write(() -> insertIntoRow(userId, filmId));
+    }
+
+    public void removeLike(int filmId, int userId) {
+        write(() -> removeFromRow(userId, filmId));
+    }
+
+    public int[] setFilmLikes(int filmId, int[] previousLikerIds, IntHashSet likerIds) {
+        IntHashSet changedUserIds = new IntHashSet();
+        write(() -> {
+            for (int userId : previousLikerIds) {
+                if (!likerIds.contains(userId) && removeFromRow(userId, filmId)) {
+                    changedUserIds.add(userId);
+                }
+            }
+            likerIds.forEachInt(userId -> {
+                if (insertIntoRow(userId, filmId)) {
+                    changedUserIds.add(userId);
+                }
+            });
+        });
+        return changedUserIds.toIntArray();
+    }
+
+    public int[] removeFilm(int filmId, int[] likerIds) {
+        return setFilmLikes(filmId, likerIds, new IntHashSet());
+    }
+
+    public void removeUser(int userId) {
+        write(() -> {
+            if (userId < userIdToFilmIds.length) {
+                userIdToFilmIds[userId] = null;
+            }
+        });
+    }
+
+    public int[] recommendFilms(int userId, int neighbourCount, int limit) {
+        Lock readLock = lock.readLock();
+        readLock.lock();
+        try {
+            int[] filmIds = row(userId);
+            if (filmIds.length == 0 || neighbourCount <= 0 || limit <= 0) {
+                return EMPTY_ROW;
+            }
+            long[] neighbours = pool.invoke(new NeighbourSearch(userIdToFilmIds, userId, filmIds, neighbourCount,
+                    0, userIdToFilmIds.length));
+            return rankFilms(filmIds, neighbours, limit);
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        pool.shutdown();
+    }
+
+    private int[] rankFilms(int[] filmIds, long[] neighbours, int limit) {
+        Map<Integer, Integer> filmIdToScore = new HashMap<>();
+        for (long neighbour : neighbours) {
+            int overlap = (int) (neighbour >>> 32);
+            int[] neighbourFilmIds = userIdToFilmIds[Integer.MAX_VALUE - (int) (neighbour & 0xFFFFFFFFL)];
+            int i = 0;
+            for (int filmId : neighbourFilmIds) {
+                while (i < filmIds.length && filmIds[i] < filmId) {
+                    i++;
+                }
+                if (i == filmIds.length || filmIds[i] != filmId) {
+                    filmIdToScore.merge(filmId, overlap, Integer::sum);
+                }
+            }
+        }
+
+        return filmIdToScore.entrySet().stream()
+                .sorted(Map.Entry.<Integer, Integer>comparingByValue().reversed()
+                        .thenComparing(Map.Entry.comparingByKey()))
+                .limit(limit)
+                .mapToInt(Map.Entry::getKey)
+                .toArray();
+    }
+
+    private int[] row(int userId) {
+        int[] row = userId < userIdToFilmIds.length ? userIdToFilmIds[userId] : null;
+        return row == null ? EMPTY_ROW : row;
+    }
+
+    private void setRow(int userId, int[] row) {
+        if (userId >= userIdToFilmIds.length) {
+            userIdToFilmIds = Arrays.copyOf(userIdToFilmIds, Math.max(userId + 1, userIdToFilmIds.length * 2));
+        }
+        userIdToFilmIds[userId] = row;
+    }
+
+    private boolean insertIntoRow(int userId, int filmId) {
+        int[] row = row(userId);
+        int position = Arrays.binarySearch(row, filmId);
+        if (position >= 0) {
+            return false;
+        }
+        int insertAt = -position - 1;
+        int[] newRow = new int[row.length + 1];
+        System.arraycopy(row, 0, newRow, 0, insertAt);
+        newRow[insertAt] = filmId;
+        System.arraycopy(row, insertAt, newRow, insertAt + 1, row.length - insertAt);
+        setRow(userId, newRow);
+        return true;
+    }
+
+    private boolean removeFromRow(int userId, int filmId) {
+        int[] row = row(userId);
+        int position = Arrays.binarySearch(row, filmId);
+        if (position < 0) {
+            return false;
+        }
+        int[] newRow = new int[row.length - 1];
+        System.arraycopy(row, 0, newRow, 0, position);
+        System.arraycopy(row, position + 1, newRow, position, row.length - position - 1);
+        setRow(userId, newRow);
+        return true;
+    }
+
+    private int[] sortedRow(IntHashSet filmIds) {
+        int[] row = filmIds.toIntArray();
+        Arrays.sort(row);
+        return row;
+    }
+
+    private void write(Runnable action) {
+        Lock writeLock = lock.writeLock();
+        writeLock.lock();
+        try {
+            action.run();
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    private static class NeighbourSearch extends RecursiveTask<long[]> {
+        private final int[][] rows;
+        private final int userId;
+        private final int[] filmIds;
+        private final int neighbourCount;
+        private final int from;
+        private final int to;
+
+        private NeighbourSearch(int[][] rows, int userId, int[] filmIds, int neighbourCount, int from, int to) {
+            this.rows = rows;
+            this.userId = userId;
+            this.filmIds = filmIds;
+            this.neighbourCount = neighbourCount;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected long[] compute() {
+            if (to - from <= SCAN_CHUNK_SIZE) {
+                return scan();
+            }
+            int middle = (from + to) >>> 1;
+            NeighbourSearch left = new NeighbourSearch(rows, userId, filmIds, neighbourCount, from, middle);
+            left.fork();
+            long[] right = new NeighbourSearch(rows, userId, filmIds, neighbourCount, middle, to).compute();
+            return merge(left.join(), right);
+        }
+
+        private long[] scan() {
+            PriorityQueue<Long> heap = new PriorityQueue<>(neighbourCount + 1);
+            for (int otherUserId = from; otherUserId < to; otherUserId++) {
+                int[] otherFilmIds = rows[otherUserId];
+                if (otherUserId == userId || otherFilmIds == null) {
+                    continue;
+                }
+                int overlap = overlap(filmIds, otherFilmIds);
+                if (overlap == 0 || overlap == otherFilmIds.length) {
+                    continue;
+                }
+                long key = ((long) overlap << 32) | (Integer.MAX_VALUE - otherUserId);
+                if (heap.size() < neighbourCount) {
+                    heap.add(key);
+                } else if (key > heap.peek()) {
+                    heap.poll();
+                    heap.add(key);
+                }
+            }
+            return heap.stream().mapToLong(Long::longValue).toArray();
+        }
+
+        private long[] merge(long[] left, long[] right) {
+            long[] neighbours = new long[left.length + right.length];
+            System.arraycopy(left, 0, neighbours, 0, left.length);
+            System.arraycopy(right, 0, neighbours, left.length, right.length);
+            if (neighbours.length <= neighbourCount) {
+                return neighbours;
+            }
+            Arrays.sort(neighbours);
+            return Arrays.copyOfRange(neighbours, neighbours.length - neighbourCount, neighbours.length);
+        }
+
+        private static int overlap(int[] row, int[] otherRow) {
+            int overlap = 0;
+            int i = 0;
+            int j = 0;
+            while (i < row.length && j < otherRow.length) {
+                if (row[i] < otherRow[j]) {
+                    i++;
+                } else if (row[i] > otherRow[j]) {
+                    j++;
+                } else {
+                    overlap++;
+                    i++;
+                    j++;
+                }
+            }
+            return overlap;
+        }
+    }
+}
@@ -3,14 +3,19 @@ package ru.yandex.practicum.filmorate.service;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Component;
 import ru.yandex.practicum.filmorate.model.Rating;
-import ru.yandex.practicum.filmorate.storage.rating.RatingStorage;
+import ru.yandex.practicum.filmorate.storage.rating.CachedRatingStorage;
 
 import java.util.List;
 
 @Component
 @RequiredArgsConstructor
 public class RatingService {
-    private final RatingStorage ratingStorage;
+    private final CachedRatingStorage ratingStorage;
+    private final VersionRegistry versionRegistry;
+
+    public String getRatingsTag() {
+        return versionRegistry.tag(ratingStorage.getVersion());
+    }
 
     public List<Rating> getAllRatings() {
         return ratingStorage.getAllRatings();
@@ -0,0 +1,86 @@
+package ru.yandex.practicum.filmorate.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.film.LikeWriteBuffer;
+import ru.yandex.practicum.filmorate.storage.user.UserStorage;
+import ru.yandex.practicum.filmorate.util.IntHashSet;
+
+import javax.annotation.PostConstruct;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+@Service
+public class RecommendationService {
+    public static final int MAX_RECOMMENDATIONS = 100;
+
+    private final FilmStorage filmStorage;
+    private final UserStorage userStorage;
+    private final LikeWriteBuffer likeWriteBuffer;
+    private final LikeMatrix likeMatrix;
+    private final Map<Integer, int[]> userIdToRecommendedFilmIds = new ConcurrentHashMap<>();
+
+    @Value("${filmorate.recommendations.neighbours}")
+    private int neighbourCount;
+
+    @Autowired
+    public RecommendationService(@Qualifier("filmDBStorage") FilmStorage filmStorage,
+                                 @Qualifier("UserDbStorage") UserStorage userStorage,
+                                 LikeWriteBuffer likeWriteBuffer,
+                                 LikeMatrix likeMatrix) {
+        this.filmStorage = filmStorage;
+        this.userStorage = userStorage;
+        this.likeWriteBuffer = likeWriteBuffer;
+        this.likeMatrix = likeMatrix;
+    }
+
+    @PostConstruct
+    public void rebuildLikeMatrix() {
+        likeMatrix.rebuild(filmStorage::streamLikes);
+        userIdToRecommendedFilmIds.clear();
+    }
+
+    public List<Film> getRecommendations(int userId, int limit) {
+        userStorage.getUserById(userId, false);
+        int[] filmIds = userIdToRecommendedFilmIds.computeIfAbsent(userId,
+                id -> likeMatrix.recommendFilms(id, neighbourCount, MAX_RECOMMENDATIONS));
+        List<Film> films = filmStorage.getFilmsByIds(Arrays.stream(filmIds).limit(limit).boxed()
+                .collect(Collectors.toList()));
+        likeWriteBuffer.applyPendingLikes(films);
+        return films;
+    }
+
+    public void addLike(int filmId, int userId) {
+        likeMatrix.addLike(filmId, userId);
+        userIdToRecommendedFilmIds.remove(userId);
+    }
+
+    public void removeLike(int filmId, int userId) {
+        likeMatrix.removeLike(filmId, userId);
+        userIdToRecommendedFilmIds.remove(userId);
+    }
+
+    public void setFilmLikes(int filmId, int[] previousLikerIds, IntHashSet likerIds) {
+        for (int userId : likeMatrix.setFilmLikes(filmId, previousLikerIds, likerIds)) {
+            userIdToRecommendedFilmIds.remove(userId);
+        }
+    }
+
+    public void removeFilm(int filmId, int[] likerIds) {
+        for (int userId : likeMatrix.removeFilm(filmId, likerIds)) {
+            userIdToRecommendedFilmIds.remove(userId);
+        }
+    }
+
+    public void removeUser(int userId) {
+        likeMatrix.removeUser(userId);
+        userIdToRecommendedFilmIds.remove(userId);
+    }
+}
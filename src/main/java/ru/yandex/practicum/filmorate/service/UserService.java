@@ -2,47 +2,171 @@ package ru.yandex.practicum.filmorate.service;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
-import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.exceptions.UserAlreadyExistsException;
+import ru.yandex.practicum.filmorate.exceptions.UserNotFoundException;
+import ru.yandex.practicum.filmorate.model.*;
+import ru.yandex.practicum.filmorate.storage.film.CachedFilmStorage;
+import ru.yandex.practicum.filmorate.storage.film.LikeWriteBuffer;
 import ru.yandex.practicum.filmorate.storage.user.UserStorage;
+import ru.yandex.practicum.filmorate.util.IntHashSet;
 
-import java.util.List;
+import javax.annotation.PostConstruct;
+import java.util.*;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
 
 @Service
 public class UserService {
     final UserStorage userStorage;
+    private final AdjacencyIndex adjacencyIndex;
+    private final FriendGraph friendGraph;
+    private final RecommendationService recommendationService;
+    private final VersionRegistry versionRegistry;
+    private final CachedFilmStorage filmCache;
+    private final LikeWriteBuffer likeWriteBuffer;
+    private final FilmPopularityIndex popularityIndex;
+
+    @Value("${filmorate.import.batch-size}")
+    private int importBatchSize;
+
+    @Value("${filmorate.friends.suggestions.work-budget}")
+    private int suggestionsWorkBudget;
 
     @Autowired
-    public UserService(@Qualifier("UserDbStorage") UserStorage userStorage) {
+    public UserService(@Qualifier("UserDbStorage") UserStorage userStorage, AdjacencyIndex adjacencyIndex,
+                       FriendGraph friendGraph, RecommendationService recommendationService,
+                       VersionRegistry versionRegistry, CachedFilmStorage filmCache,
+                       LikeWriteBuffer likeWriteBuffer, FilmPopularityIndex popularityIndex) {
         this.userStorage = userStorage;
+        this.adjacencyIndex = adjacencyIndex;
+        this.friendGraph = friendGraph;
+        this.recommendationService = recommendationService;
+        this.versionRegistry = versionRegistry;
+        this.filmCache = filmCache;
+        this.likeWriteBuffer = likeWriteBuffer;
+        this.popularityIndex = popularityIndex;
+    }
+
+    @PostConstruct
+    public void rebuildFriendIndexes() {
+        adjacencyIndex.rebuildFriends(userStorage::streamFriendships);
+        friendGraph.rebuild(userStorage::streamFriendships);
     }
 
     public User getUserById(int id) {
         return userStorage.getUserById(id);
     }
 
+    public String getUserTag(int id) {
+        return versionRegistry.getUserTag(id);
+    }
+
     public List<User> getAllUsers() {
         return userStorage.getAllUsers();
     }
 
+    public void streamAllUsers(Consumer<User> consumer) {
+        userStorage.streamAllUsers(consumer);
+    }
+
+    public List<User> getUsers(int afterId, int limit) {
+        return userStorage.getUsers(afterId, limit);
+    }
+
     public User addUser(User user) {
-        return userStorage.addUser(user);
+        User addedUser = userStorage.addUser(user);
+        putFriendsToIndex(addedUser);
+        return addedUser;
+    }
+
+    public Map<String, Integer> importUsers(UserImportRequest request) {
+        Set<String> externalIds = new HashSet<>();
+        for (ImportedUser importedUser : request.getUsers()) {
+            if (!externalIds.add(importedUser.getExternalId())) {
+                throw new UserAlreadyExistsException(String.format("Пользователь с внешним идентификатором %s " +
+                        "указан несколько раз", importedUser.getExternalId()));
+            }
+        }
+        for (ImportedFriendship friendship : request.getFriendships()) {
+            checkExternalIdPresent(externalIds, friendship.getUserExternalId());
+            checkExternalIdPresent(externalIds, friendship.getFriendExternalId());
+        }
+
+        Map<String, Integer> ids = new LinkedHashMap<>();
+        List<ImportedUser> importedUsers = request.getUsers();
+        for (int from = 0; from < importedUsers.size(); from += importBatchSize) {
+            List<ImportedUser> chunk = importedUsers.subList(from, Math.min(from + importBatchSize,
+                    importedUsers.size()));
+            List<User> users = new ArrayList<>(chunk.size());
+            for (ImportedUser importedUser : chunk) {
+                User user = importedUser.getUser();
+                user.setId(null);
+                user.setVersion(null);
+                user.setFriendIds(new IntHashSet());
+                users.add(user);
+            }
+            userStorage.addUsers(users);
+            users.forEach(this::putFriendsToIndex);
+            for (ImportedUser importedUser : chunk) {
+                ids.put(importedUser.getExternalId(), importedUser.getUser().getId());
+            }
+        }
+
+        Set<Long> addedEdges = new HashSet<>();
+        List<Friendship> chunk = new ArrayList<>(importBatchSize);
+        for (ImportedFriendship importedFriendship : request.getFriendships()) {
+            int userId = ids.get(importedFriendship.getUserExternalId());
+            int friendId = ids.get(importedFriendship.getFriendExternalId());
+            if (addedEdges.add(((long) userId << 32) | friendId)) {
+                chunk.add(new Friendship(userId, friendId));
+            }
+            if (chunk.size() == importBatchSize) {
+                addFriendships(chunk);
+                chunk = new ArrayList<>(importBatchSize);
+            }
+        }
+        if (!chunk.isEmpty()) {
+            addFriendships(chunk);
+        }
+        return ids;
     }
 
     public User updateUser(User user) {
-        return userStorage.updateUser(user);
+        User updatedUser = userStorage.updateUser(user);
+        putFriendsToIndex(updatedUser);
+        return updatedUser;
     }
 
     public void addFriend(int userId, int otherUserId) {
-        userStorage.addFriend(userId, otherUserId);
+        if (userStorage.addFriend(userId, otherUserId)) {
+            adjacencyIndex.addFriend(userId, otherUserId);
+            friendGraph.addFriend(userId, otherUserId);
+            versionRegistry.userChanged(userId);
+        }
     }
 
     public void removeFriend(int userId, int otherUserId) {
-        userStorage.removeFriend(userId, otherUserId);
+        if (userStorage.removeFriend(userId, otherUserId)) {
+            adjacencyIndex.removeFriend(userId, otherUserId);
+            friendGraph.removeFriend(userId, otherUserId);
+            versionRegistry.userChanged(userId);
+        }
     }
 
     public void removeUser(int userId) {
         userStorage.deleteUser(userId);
+        likeWriteBuffer.removeUser(userId);
+        int[] likedFilmIds = adjacencyIndex.removeUser(userId);
+        filmCache.removeUserLikes(userId, likedFilmIds);
+        for (int filmId : likedFilmIds) {
+            popularityIndex.decrementLikes(filmId);
+        }
+        friendGraph.removeUser(userId);
+        recommendationService.removeUser(userId);
+        versionRegistry.allUsersChanged();
+        versionRegistry.allFilmsChanged();
     }
 
     public List<User> getUserFriends(int userId) {
@@ -50,7 +174,38 @@ public class UserService {
     }
 
     public List<User> getCommonFriends(int userId, int otherUserId) {
-        return userStorage.getCommonFriends(userId, otherUserId);
+        userStorage.getUserById(userId, false);
+        userStorage.getUserById(otherUserId, false);
+        int[] commonFriendIds = adjacencyIndex.getCommonFriendIds(userId, otherUserId);
+        return userStorage.getUsersByIds(Arrays.stream(commonFriendIds).boxed().collect(Collectors.toList()));
+    }
+
+    public List<User> getFriendSuggestions(int userId, int limit) {
+        userStorage.getUserById(userId, false);
+        int[] suggestedIds = friendGraph.getFriendSuggestions(userId, limit, suggestionsWorkBudget);
+        return userStorage.getUsersByIds(Arrays.stream(suggestedIds).boxed().collect(Collectors.toList()));
     }
 
+    private void addFriendships(List<Friendship> friendships) {
+        userStorage.addFriendships(friendships);
+        for (Friendship friendship : friendships) {
+            adjacencyIndex.addFriend(friendship.getUserId(), friendship.getFriendId());
+            friendGraph.addFriend(friendship.getUserId(), friendship.getFriendId());
+            versionRegistry.userChanged(friendship.getUserId());
+        }
+    }
+
+    private void putFriendsToIndex(User user) {
+        IntHashSet friendIds = user.getFriendIds() == null ? new IntHashSet() : user.getFriendIds();
+        adjacencyIndex.setFriends(user.getId(), friendIds);
+        friendGraph.setFriends(user.getId(), friendIds);
+        versionRegistry.userChanged(user.getId());
+    }
+
+    private void checkExternalIdPresent(Set<String> externalIds, String externalId) {
+        if (!externalIds.contains(externalId)) {
+            throw new UserNotFoundException(String.format("Пользователь с внешним идентификатором %s не найден",
+                    externalId));
+        }
+    }
 }
@@ -0,0 +1,69 @@
+package ru.yandex.practicum.filmorate.service;
+
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+@Component
+public class VersionRegistry {
+    private static final int SLOT_COUNT = 1 << 16;
+
+    private final String epoch = Long.toString(ThreadLocalRandom.current().nextLong() >>> 1, 36);
+    private final AtomicLong sequence = new AtomicLong();
+    private final EntityVersions films = new EntityVersions();
+    private final EntityVersions users = new EntityVersions();
+
+    public void filmChanged(int filmId) {
+        films.changed(filmId, sequence.incrementAndGet());
+    }
+
+    public void allFilmsChanged() {
+        films.allChanged(sequence.incrementAndGet());
+    }
+
+    public void userChanged(int userId) {
+        users.changed(userId, sequence.incrementAndGet());
+    }
+
+    public void allUsersChanged() {
+        users.allChanged(sequence.incrementAndGet());
+    }
+
+    public String getFilmTag(int filmId) {
+        return tag(films.getVersion(filmId));
+    }
+
+    public String getFilmsTag() {
+        return tag(films.collectionVersion.get());
+    }
+
+    public String getUserTag(int userId) {
+        return tag(users.getVersion(userId));
+    }
+
+    public String tag(long version) {
+        return "\"" + epoch + "-" + version + "\"";
+    }
+
+    private static class EntityVersions {
+        private final AtomicLongArray slotVersions = new AtomicLongArray(SLOT_COUNT);
+        private final AtomicLong allChangedVersion = new AtomicLong();
+        private final AtomicLong collectionVersion = new AtomicLong();
+
+        void changed(int id, long version) {
+            slotVersions.accumulateAndGet(id & (SLOT_COUNT - 1), version, Math::max);
+            collectionVersion.accumulateAndGet(version, Math::max);
+        }
+
+        void allChanged(long version) {
+            allChangedVersion.accumulateAndGet(version, Math::max);
+            collectionVersion.accumulateAndGet(version, Math::max);
+        }
+
+        long getVersion(int id) {
+            return Math.max(slotVersions.get(id & (SLOT_COUNT - 1)), allChangedVersion.get());
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.util.IntHashSet;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Component
+@RequiredArgsConstructor
+public class LinkTableWriter {
+    private final JdbcTemplate jdbcTemplate;
+
+    public void replaceLinks(LinkTable table, int ownerId, IntHashSet targetIds) {
+        IntHashSet currentIds = new IntHashSet();
+        jdbcTemplate.query(table.selectSql, rs -> {
+            currentIds.add(rs.getInt(1));
+        }, ownerId);
+
+        List<Object[]> deletedLinks = new ArrayList<>();
+        currentIds.forEachInt(targetId -> {
+            if (!targetIds.contains(targetId)) {
+                deletedLinks.add(new Object[]{ownerId, targetId});
+            }
+        });
+        List<Object[]> insertedLinks = new ArrayList<>();
+        targetIds.forEachInt(targetId -> {
+            if (!currentIds.contains(targetId)) {
+                insertedLinks.add(new Object[]{ownerId, targetId});
+            }
+        });
+
+        if (!deletedLinks.isEmpty()) {
+            jdbcTemplate.batchUpdate(table.deleteSql, deletedLinks);
+        }
+        if (!insertedLinks.isEmpty()) {
+            jdbcTemplate.batchUpdate(table.insertSql, insertedLinks);
+        }
+    }
+
+    public enum LinkTable {
+        FILM_GENRES("film_genres", "film_id", "genre_id"),
+        FILM_LIKES("film_likes", "film_id", "user_id"),
+        FRIENDS("friends", "user_id", "friend_id");
+
+        private final String selectSql;
+        private final String deleteSql;
+        private final String insertSql;
+
+        LinkTable(String table, String ownerColumn, String targetColumn) {
+            selectSql = String.format("select %s from %s where %s = ?", targetColumn, table, ownerColumn);
+            deleteSql = String.format("delete from %s where %s = ? and %s = ?", table, ownerColumn, targetColumn);
+            insertSql = String.format("insert into %s(%s, %s) values (?, ?)", table, ownerColumn, targetColumn);
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntFunction;
+import java.util.function.Supplier;
+import java.util.function.ToIntFunction;
+
+@Slf4j
+public class ReferenceDataCache<T> {
+    private final String name;
+    private final ToIntFunction<T> idExtractor;
+    private final Supplier<List<T>> loader;
+    private final IntFunction<T> missLoader;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final AtomicLong version = new AtomicLong();
+    private volatile Snapshot<T> snapshot = new Snapshot<>(new Object[0], Collections.emptyList());
+
+    public ReferenceDataCache(String name, ToIntFunction<T> idExtractor, Supplier<List<T>> loader,
+                              IntFunction<T> missLoader) {
+        this.name = name;
+        this.idExtractor = idExtractor;
+        this.loader = loader;
+        this.missLoader = missLoader;
+    }
+
+    public void refresh() {
+        List<T> values = loader.get();
+        int maxId = values.stream().mapToInt(idExtractor).max().orElse(0);
+        Object[] idToValue = new Object[maxId + 1];
+        for (T value : values) {
+            idToValue[idExtractor.applyAsInt(value)] = value;
+        }
+
+        List<T> sortedValues = new ArrayList<>();
+        for (Object value : idToValue) {
+            if (value != null) {
+                sortedValues.add(cast(value));
+            }
+        }
+
+        snapshot = new Snapshot<>(idToValue, Collections.unmodifiableList(sortedValues));
+        version.incrementAndGet();
+        log.info("{} cache refreshed, {} entries loaded", name, sortedValues.size());
+    }
+
+    public List<T> getAll() {
+        hits.increment();
+        return snapshot.allValues;
+    }
+
+    public T getById(int id) {
+        Object[] idToValue = snapshot.idToValue;
+        if (id >= 0 && id < idToValue.length && idToValue[id] != null) {
+            hits.increment();
+            return cast(idToValue[id]);
+        }
+        misses.increment();
+        T value = missLoader.apply(id);
+        refresh();
+        return value;
+    }
+
+    public long getVersion() {
+        return version.get();
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    @SuppressWarnings("unchecked")
+    private T cast(Object value) {
+        return (T) value;
+    }
+
+    private static class Snapshot<T> {
+        private final Object[] idToValue;
+        private final List<T> allValues;
+
+        private Snapshot(Object[] idToValue, List<T> allValues) {
+            this.idToValue = idToValue;
+            this.allValues = allValues;
+        }
+    }
+}
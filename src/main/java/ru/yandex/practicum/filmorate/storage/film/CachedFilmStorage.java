@@ -0,0 +1,199 @@
+package ru.yandex.practicum.filmorate.storage.film;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmLike;
+import ru.yandex.practicum.filmorate.util.IntHashSet;
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+@Component("cachedFilmStorage")
+public class CachedFilmStorage implements FilmStorage {
+    private final FilmDbStorage filmDbStorage;
+    private final Cache<Integer, Film> cache;
+    private final AtomicLong writes = new AtomicLong();
+
+    public CachedFilmStorage(FilmDbStorage filmDbStorage,
+                             @Value("${filmorate.films.cache.max-weight}") long maxWeight) {
+        this.filmDbStorage = filmDbStorage;
+        this.cache = Caffeine.newBuilder()
+                .maximumWeight(maxWeight)
+                .weigher((Integer id, Film film) -> 1 + film.getLikes().size())
+                .executor(Runnable::run)
+                .recordStats()
+                .build();
+    }
+
+    @Override
+    public Film getFilmById(int id) {
+        return copy(cache.get(id, filmDbStorage::getFilmById));
+    }
+
+    @Override
+    public List<Film> getAllFilms() {
+        return filmDbStorage.getAllFilms();
+    }
+
+    @Override
+    public void streamAllFilms(Consumer<Film> consumer) {
+        filmDbStorage.streamAllFilms(consumer);
+    }
+
+    @Override
+    public List<Film> getFilms(int afterId, int limit) {
+        return filmDbStorage.getFilms(afterId, limit);
+    }
+
+    @Override
+    public List<Film> getFilmsByIds(List<Integer> ids) {
+        Map<Integer, Film> idToFilm = new HashMap<>(cache.getAllPresent(ids));
+        List<Integer> missingIds = new ArrayList<>();
+        for (Integer id : ids) {
+            if (!idToFilm.containsKey(id)) {
+                missingIds.add(id);
+            }
+        }
+
+        if (!missingIds.isEmpty()) {
+            long writesBefore = writes.get();
+            List<Film> loadedFilms = filmDbStorage.getFilmsByIds(missingIds);
+            for (Film film : loadedFilms) {
+                idToFilm.put(film.getId(), film);
+            }
+            if (writes.get() == writesBefore) {
+                loadedFilms.forEach(film -> cache.asMap().putIfAbsent(film.getId(), film));
+            }
+        }
+
+        List<Film> orderedFilms = new ArrayList<>(idToFilm.size());
+        for (Integer id : ids) {
+            Film film = idToFilm.get(id);
+            if (film != null) {
+                orderedFilms.add(copy(film));
+            }
+        }
+        return orderedFilms;
+    }
+
+    @Override
+    public Film addFilm(Film film) {
+        return filmDbStorage.addFilm(film);
+    }
+
+    @Override
+    public List<Film> addFilms(List<Film> films) {
+        return filmDbStorage.addFilms(films);
+    }
+
+    @Override
+    public Film updateFilm(Film film) {
+        Film updatedFilm = filmDbStorage.updateFilm(film);
+        writes.incrementAndGet();
+        cache.invalidate(updatedFilm.getId());
+        return updatedFilm;
+    }
+
+    @Override
+    public void deleteFilm(int filmId) {
+        filmDbStorage.deleteFilm(filmId);
+        writes.incrementAndGet();
+        cache.invalidate(filmId);
+    }
+
+    @Override
+    public boolean addLike(int filmId, int userId) {
+        boolean added = filmDbStorage.addLike(filmId, userId);
+        if (added) {
+            patchLike(filmId, userId, true);
+        }
+        return added;
+    }
+
+    @Override
+    public boolean removeLike(int filmId, int userId) {
+        boolean removed = filmDbStorage.removeLike(filmId, userId);
+        if (removed) {
+            patchLike(filmId, userId, false);
+        }
+        return removed;
+    }
+
+    @Override
+    public boolean hasLike(int filmId, int userId) {
+        return filmDbStorage.hasLike(filmId, userId);
+    }
+
+    @Override
+    public int[] applyLikeChanges(List<FilmLike> addedLikes, List<FilmLike> removedLikes) {
+        int[] addedCounts = filmDbStorage.applyLikeChanges(addedLikes, removedLikes);
+        for (int i = 0; i < addedCounts.length; i++) {
+            if (addedCounts[i] == 1) {
+                FilmLike like = addedLikes.get(i);
+                patchLike(like.getFilmId(), like.getUserId(), true);
+            }
+        }
+        removedLikes.forEach(like -> patchLike(like.getFilmId(), like.getUserId(), false));
+        return addedCounts;
+    }
+
+    @Override
+    public void streamLikes(Consumer<FilmLike> consumer) {
+        filmDbStorage.streamLikes(consumer);
+    }
+
+    @Override
+    public List<Film> getMostPopularFilms(int count) {
+        return filmDbStorage.getMostPopularFilms(count);
+    }
+
+    @Override
+    public Map<Integer, Integer> getLikeCounts() {
+        return filmDbStorage.getLikeCounts();
+    }
+
+    public boolean hasCachedLike(int filmId, int userId) {
+        return cache.get(filmId, filmDbStorage::getFilmById).getLikes().contains(userId);
+    }
+
+    public void removeUserLikes(int userId, int[] likedFilmIds) {
+        for (int filmId : likedFilmIds) {
+            patchLike(filmId, userId, false);
+        }
+    }
+
+    public CacheStats getStats() {
+        return cache.stats();
+    }
+
+    public long getWeightedSize() {
+        return cache.policy().eviction().map(eviction -> eviction.weightedSize().orElse(0)).orElse(0L);
+    }
+
+    private void patchLike(int filmId, int userId, boolean liked) {
+        writes.incrementAndGet();
+        cache.asMap().computeIfPresent(filmId, (id, film) -> withLike(film, userId, liked));
+    }
+
+    private static Film withLike(Film film, int userId, boolean liked) {
+        Film patchedFilm = copy(film);
+        if (liked) {
+            patchedFilm.addLike(userId);
+        } else {
+            patchedFilm.removeLike(userId);
+        }
+        return patchedFilm;
+    }
+
+    private static Film copy(Film film) {
+        return Film.builder().id(film.getId()).name(film.getName()).description(film.getDescription())
+                .releaseDate(film.getReleaseDate()).duration(film.getDuration()).mpa(film.getMpa())
+                .genres(new TreeSet<>(film.getGenres())).likes(new IntHashSet(film.getLikes()))
+                .version(film.getVersion()).build();
+    }
+}
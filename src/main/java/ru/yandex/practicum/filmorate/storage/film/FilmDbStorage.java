@@ -2,180 +2,193 @@ package ru.yandex.practicum.filmorate.storage.film;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.ConnectionCallback;
 import org.springframework.jdbc.core.JdbcTemplate;
-import org.springframework.jdbc.core.simple.SimpleJdbcInsert;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
 import ru.yandex.practicum.filmorate.exceptions.FilmAlreadyExistsException;
 import ru.yandex.practicum.filmorate.exceptions.FilmNotFoundException;
+import ru.yandex.practicum.filmorate.exceptions.FilmUpdateConflictException;
+import ru.yandex.practicum.filmorate.exceptions.UserNotFoundException;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmLike;
 import ru.yandex.practicum.filmorate.model.Genre;
 import ru.yandex.practicum.filmorate.model.Rating;
+import ru.yandex.practicum.filmorate.storage.LinkTableWriter;
+import ru.yandex.practicum.filmorate.storage.LinkTableWriter.LinkTable;
 import ru.yandex.practicum.filmorate.storage.genre.GenreStorage;
 import ru.yandex.practicum.filmorate.storage.rating.RatingStorage;
+import ru.yandex.practicum.filmorate.util.IntHashSet;
 
 import java.sql.Date;
+import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Types;
 import java.time.LocalDate;
 import java.util.*;
+import java.util.function.Consumer;
 
 @RequiredArgsConstructor
 @Component("filmDBStorage")
 @Slf4j
 public class FilmDbStorage implements FilmStorage {
+    private static final String SELECT_FILMS_SQL = "select film_id, name, description, release_date, duration, " +
+            "rating_id, version from films";
+    private static final String INSERT_FILM_SQL = "insert into films(name, description, release_date, duration, " +
+            "rating_id, like_count) values (?, ?, ?, ?, ?, ?)";
+    private static final int IN_CLAUSE_CHUNK_SIZE = 1000;
 
     private final JdbcTemplate jdbcTemplate;
     private final GenreStorage genreStorage;
     private final RatingStorage ratingStorage;
+    private final LinkTableWriter linkTableWriter;
+
+    @Value("${filmorate.streaming.fetch-size}")
+    private int streamingFetchSize;
 
     @Override
     public Film getFilmById(int id) {
-        String sql = "select film_id, name, description, release_date, duration, rating_id " +
-                "from films where film_id = ?";
-        try {
-            return jdbcTemplate.queryForObject(sql, (rs, rowNum) -> makeFilm(rs), id);
-        } catch (EmptyResultDataAccessException e) {
+        String sql = SELECT_FILMS_SQL + " where film_id = ?";
+        List<Film> films = jdbcTemplate.query(sql, (rs, rowNum) -> makeFilm(rs), id);
+        if (films.isEmpty()) {
             throw new FilmNotFoundException(String.format("Фильм с идентификатором %d не найден", id));
         }
+        hydrateFilms(films);
+        return films.get(0);
     }
 
     @Override
     public List<Film> getAllFilms() {
-        String sql = "select film_id, name, description, release_date, duration, rating_id from films";
-        return jdbcTemplate.query(sql, (rs, rowNum) -> makeFilm(rs));
+        List<Film> films = jdbcTemplate.query(SELECT_FILMS_SQL, (rs, rowNum) -> makeFilm(rs));
+        hydrateAllFilms(films);
+        return films;
     }
 
     @Override
-    public Film addFilm(Film film) {
-        if (film.getId() != null) {
-            String sql = "select film_id, name, description, release_date, duration, rating_id " +
-                    "from films where film_id = ?";
-            List<Film> films = jdbcTemplate.query(sql, (rs, rowNum) -> makeFilm(rs), film.getId());
-            if (films.size() != 0) {
-                throw new FilmAlreadyExistsException(String.format("Фильм с id %d уже существует", film.getId()));
+    @Transactional(readOnly = true)
+    public void streamAllFilms(Consumer<Film> consumer) {
+        List<Film> batch = new ArrayList<>(streamingFetchSize);
+        jdbcTemplate.query(con -> {
+            PreparedStatement statement = con.prepareStatement(SELECT_FILMS_SQL + " order by film_id");
+            statement.setFetchSize(streamingFetchSize);
+            return statement;
+        }, rs -> {
+            batch.add(makeFilm(rs));
+            if (batch.size() == streamingFetchSize) {
+                flushStreamBatch(batch, consumer);
             }
-        }
-        SimpleJdbcInsert simpleJdbcInsert = new SimpleJdbcInsert(jdbcTemplate)
-                .withTableName("films")
-                .usingGeneratedKeyColumns("film_id");
-        int filmId = simpleJdbcInsert.executeAndReturnKey(convertFilmToMap(film)).intValue();
-        film.setId(filmId);
-        if (film.getGenres() == null) {
-            film.setGenres(new TreeSet<>());
-        }
-
-        if (film.getLikes() == null) {
-            film.setLikes(new HashSet<>());
-        }
+        });
+        flushStreamBatch(batch, consumer);
+    }
 
-        String insertGenresSql = "insert into film_genres(film_id, genre_id) values (?, ?)";
-        List<Object[]> batchArgsList = new ArrayList<>();
+    @Override
+    public List<Film> getFilms(int afterId, int limit) {
+        String sql = SELECT_FILMS_SQL + " where film_id > ? order by film_id limit ?";
+        List<Film> films = jdbcTemplate.query(sql, (rs, rowNum) -> makeFilm(rs), afterId, limit);
+        hydrateFilms(films);
+        return films;
+    }
 
-        for (Genre genre : film.getGenres()) {
-            Object[] objectArray = {filmId, genre.getId()};
-            batchArgsList.add(objectArray);
+    @Override
+    public List<Film> getFilmsByIds(List<Integer> ids) {
+        Map<Integer, Film> idToFilm = new HashMap<>();
+
+        for (int from = 0; from < ids.size(); from += IN_CLAUSE_CHUNK_SIZE) {
+            List<Integer> chunk = ids.subList(from, Math.min(from + IN_CLAUSE_CHUNK_SIZE, ids.size()));
+            String sql = SELECT_FILMS_SQL + " where film_id in (" +
+                    String.join(", ", Collections.nCopies(chunk.size(), "?")) + ")";
+            List<Film> films = jdbcTemplate.query(sql, (rs, rowNum) -> makeFilm(rs), chunk.toArray());
+            hydrateFilms(films);
+            films.forEach(film -> idToFilm.put(film.getId(), film));
         }
 
-        jdbcTemplate.batchUpdate(insertGenresSql, batchArgsList);
-
-        String insertLikesSql = "insert into film_likes(film_id, user_id) values (?, ?)";
-        List<Object[]> batchArgs = new ArrayList<>();
-
-        for (Integer userWhoLikedId : film.getLikes()) {
-            Object[] objectArray = {filmId, userWhoLikedId};
-            batchArgsList.add(objectArray);
+        List<Film> orderedFilms = new ArrayList<>(idToFilm.size());
+        for (Integer id : ids) {
+            Film film = idToFilm.get(id);
+            if (film != null) {
+                orderedFilms.add(film);
+            }
         }
+        return orderedFilms;
+    }
 
-        jdbcTemplate.batchUpdate(insertLikesSql, batchArgs);
-
-        film.setGenres(getFilmGenresFromDb(filmId));
-        film.setMpa(getMpaById(film.getMpa().getId()));
+    @Override
+    @Transactional
+    public Film addFilm(Film film) {
+        if (film.getId() != null) {
+            String sql = "select count(*) from films where film_id = ?";
+            Integer films = jdbcTemplate.queryForObject(sql, Integer.class, film.getId());
+            if (films != null && films != 0) {
+                throw new FilmAlreadyExistsException(String.format("Фильм с id %d уже существует", film.getId()));
+            }
+        }
+        insertFilms(Collections.singletonList(film));
 
         log.info("New film is added to database: {}", film);
         return film;
     }
 
     @Override
-    public Film updateFilm(Film film) {
-        getFilmById(film.getId());
-
-        String sql = "update films set " +
-                "name = ?, description = ?, release_date = ?, duration = ?, rating_id = ? " +
-                "where film_id = ?";
-        jdbcTemplate.update(sql, film.getName(), film.getDescription(), Date.valueOf(film.getReleaseDate()),
-                film.getDuration(), film.getMpa().getId(), film.getId());
-
-        if (film.getGenres() == null) {
-            film.setGenres(new TreeSet<>());
-        }
+    @Transactional
+    public List<Film> addFilms(List<Film> films) {
+        insertFilms(films);
+        log.info("{} films are added to database", films.size());
+        return films;
+    }
 
-        if (film.getLikes() == null) {
-            film.setLikes(new HashSet<>());
+    @Override
+    @Transactional
+    public Film updateFilm(Film film) {
+        if (film.getMpa() != null) {
+            film.setMpa(getMpaById(film.getMpa().getId()));
         }
-
-        String deleteGenresSql = "delete from film_genres where film_id = ? and genre_id = ?";
-        Set<Genre> genresToDelete = new HashSet<>(getFilmGenresFromDb(film.getId()));
-        genresToDelete.removeAll(film.getGenres());
-
-        List<Object[]> batchArgs = new ArrayList<>();
-
-        for (Genre genre : genresToDelete) {
-            Object[] objectArray = {film.getId(), genre.getId()};
-            batchArgs.add(objectArray);
+        TreeSet<Genre> genres = new TreeSet<>();
+        if (film.getGenres() != null) {
+            for (Genre genre : film.getGenres()) {
+                genres.add(genreStorage.getGenreById(genre.getId()));
+            }
         }
-
-        jdbcTemplate.batchUpdate(deleteGenresSql, batchArgs);
-
-        String insertGenresSql = "insert into film_genres(film_id, genre_id) values (?, ?)";
-        Set<Genre> genresToInsert = new HashSet<>(film.getGenres());
-        genresToInsert.removeAll(getFilmGenresFromDb(film.getId()));
-
-        batchArgs = new ArrayList<>();
-
-        for (Genre genre : genresToInsert) {
-            Object[] objectArray = {film.getId(), genre.getId()};
-            batchArgs.add(objectArray);
+        film.setGenres(genres);
+        if (film.getLikes() == null) {
+            film.setLikes(new IntHashSet());
         }
 
-        jdbcTemplate.batchUpdate(insertGenresSql, batchArgs);
-
-        String deleteLikesSql = "delete from film_likes where film_id = ? and user_id = ?";
-        Set<Integer> likesToDelete = new HashSet<>(getLikesInDb(film.getId()));
-        likesToDelete.removeAll(film.getLikes());
-
-        batchArgs = new ArrayList<>();
-
-        for (Integer userWhoLikedId : likesToDelete) {
-            Object[] objectArray = {film.getId(), userWhoLikedId};
-            batchArgs.add(objectArray);
+        String sql = "update films set name = ?, description = ?, release_date = ?, duration = ?, rating_id = ?, " +
+                "like_count = ?, version = version + 1 where film_id = ?";
+        List<Object> args = new ArrayList<>(Arrays.asList(film.getName(), film.getDescription(),
+                Date.valueOf(film.getReleaseDate()), film.getDuration(),
+                film.getMpa() == null ? null : film.getMpa().getId(), film.getLikes().size(), film.getId()));
+        if (film.getVersion() != null) {
+            sql += " and version = ?";
+            args.add(film.getVersion());
         }
-
-        jdbcTemplate.batchUpdate(deleteLikesSql, batchArgs);
-
-        String insertLikesSql = "insert into film_likes(film_id, user_id) values (?, ?)";
-        Set<Integer> likesToInsert = new HashSet<>(film.getLikes());
-        likesToInsert.removeAll(getLikesInDb(film.getId()));
-
-        batchArgs = new ArrayList<>();
-
-        for (Integer userWhoLikedId : likesToInsert) {
-            Object[] objectArray = {film.getId(), userWhoLikedId};
-            batchArgs.add(objectArray);
+        if (jdbcTemplate.update(sql, args.toArray()) == 0) {
+            Long currentVersion = getVersionInDb(film.getId());
+            if (currentVersion == null) {
+                throw new FilmNotFoundException(String.format("Фильм с идентификатором %d не найден", film.getId()));
+            }
+            throw new FilmUpdateConflictException(String.format("Фильм с идентификатором %d был изменён другим " +
+                    "запросом: ожидалась версия %d, текущая версия %d", film.getId(), film.getVersion(),
+                    currentVersion));
         }
-        jdbcTemplate.batchUpdate(insertLikesSql, batchArgs);
+        film.setVersion(film.getVersion() == null ? getVersionInDb(film.getId()) : film.getVersion() + 1);
 
-        film.setGenres(getFilmGenresFromDb(film.getId()));
-        film.setMpa(getMpaById(film.getMpa().getId()));
+        IntHashSet genreIds = new IntHashSet(genres.size());
+        genres.forEach(genre -> genreIds.add(genre.getId()));
+        linkTableWriter.replaceLinks(LinkTable.FILM_GENRES, film.getId(), genreIds);
+        linkTableWriter.replaceLinks(LinkTable.FILM_LIKES, film.getId(), film.getLikes());
 
         log.info("Updated film in database: {}", film);
         return film;
     }
 
     @Override
+    @Transactional
     public void deleteFilm(int filmId) {
-        getFilmById(filmId);
-
         String deleteLikesSql = "delete from film_likes where film_id = ?";
         jdbcTemplate.update(deleteLikesSql, filmId);
 
@@ -183,46 +196,263 @@ public class FilmDbStorage implements FilmStorage {
         jdbcTemplate.update(deleteGenresSql, filmId);
 
         String deleteFilmSql = "delete from films where film_id = ?";
-        jdbcTemplate.update(deleteFilmSql, filmId);
+        if (jdbcTemplate.update(deleteFilmSql, filmId) == 0) {
+            throw new FilmNotFoundException(String.format("Фильм с идентификатором %d не найден", filmId));
+        }
 
         log.info("Removed film with id: {} from database", filmId);
     }
 
     @Override
-    public void addLike(int filmId, int userId) {
-        if (!getLikesInDb(filmId).contains(userId)) {
-            String sql = "insert into film_likes(film_id, user_id) values (?, ?)";
-            jdbcTemplate.update(sql, filmId, userId);
+    @Transactional
+    public boolean addLike(int filmId, int userId) {
+        String sql = "insert into film_likes(film_id, user_id) select ?, ? where not exists " +
+                "(select 1 from film_likes where film_id = ? and user_id = ?)";
+        int insertedRows;
+        try {
+            insertedRows = jdbcTemplate.update(sql, filmId, userId, filmId, userId);
+        } catch (DuplicateKeyException e) {
+            return false;
+        } catch (DataIntegrityViolationException e) {
+            checkFilmAndUserExist(filmId, userId);
+            throw e;
+        }
+        if (insertedRows == 0) {
+            return false;
         }
+        String updateLikeCountSql = "update films set like_count = like_count + 1 where film_id = ?";
+        jdbcTemplate.update(updateLikeCountSql, filmId);
+        return true;
     }
 
     @Override
-    public void removeLike(int filmId, int userId) {
-        if (getLikesInDb(filmId).contains(userId)) {
-            String sql = "delete from film_likes where film_id = ? and user_id = ?";
-            jdbcTemplate.update(sql, filmId, userId);
+    @Transactional
+    public boolean removeLike(int filmId, int userId) {
+        String sql = "delete from film_likes where film_id = ? and user_id = ?";
+        if (jdbcTemplate.update(sql, filmId, userId) == 0) {
+            checkFilmAndUserExist(filmId, userId);
+            return false;
         }
+        String updateLikeCountSql = "update films set like_count = like_count - 1 where film_id = ?";
+        jdbcTemplate.update(updateLikeCountSql, filmId);
+        return true;
+    }
+
+    @Override
+    public boolean hasLike(int filmId, int userId) {
+        String sql = "select (select count(*) from films where film_id = ?) as films, " +
+                "(select count(*) from users where user_id = ?) as users, " +
+                "(select count(*) from film_likes where film_id = ? and user_id = ?) as likes";
+        return Boolean.TRUE.equals(jdbcTemplate.queryForObject(sql, (rs, rowNum) -> {
+            if (rs.getInt("films") == 0) {
+                throw new FilmNotFoundException(String.format("Фильм с идентификатором %d не найден", filmId));
+            }
+            if (rs.getInt("users") == 0) {
+                throw new UserNotFoundException(String.format("Пользователь с идентификатором %d не найден",
+                        userId));
+            }
+            return rs.getInt("likes") > 0;
+        }, filmId, userId, filmId, userId));
+    }
+
+    @Override
+    @Transactional
+    public int[] applyLikeChanges(List<FilmLike> addedLikes, List<FilmLike> removedLikes) {
+        String insertSql = "insert into film_likes(film_id, user_id) " +
+                "select f.film_id, u.user_id from films as f join users as u on u.user_id = ? " +
+                "where f.film_id = ? and not exists " +
+                "(select 1 from film_likes where film_id = f.film_id and user_id = u.user_id)";
+        int[][] addedCounts = jdbcTemplate.batchUpdate(insertSql, addedLikes, addedLikes.size(), (ps, like) -> {
+            ps.setInt(1, like.getUserId());
+            ps.setInt(2, like.getFilmId());
+        });
+
+        String deleteSql = "delete from film_likes where film_id = ? and user_id = ?";
+        jdbcTemplate.batchUpdate(deleteSql, removedLikes, removedLikes.size(), (ps, like) -> {
+            ps.setInt(1, like.getFilmId());
+            ps.setInt(2, like.getUserId());
+        });
+
+        Set<Integer> filmIds = new TreeSet<>();
+        addedLikes.forEach(like -> filmIds.add(like.getFilmId()));
+        removedLikes.forEach(like -> filmIds.add(like.getFilmId()));
+        String recountSql = "update films set like_count = " +
+                "(select count(*) from film_likes where film_id = ?) where film_id = ?";
+        jdbcTemplate.batchUpdate(recountSql, filmIds, filmIds.size(), (ps, filmId) -> {
+            ps.setInt(1, filmId);
+            ps.setInt(2, filmId);
+        });
+        return Arrays.stream(addedCounts).flatMapToInt(Arrays::stream).toArray();
+    }
+
+    @Override
+    public void streamLikes(Consumer<FilmLike> consumer) {
+        String sql = "select film_id, user_id from film_likes";
+        jdbcTemplate.query(sql, rs -> {
+            consumer.accept(new FilmLike(rs.getInt("film_id"), rs.getInt("user_id")));
+        });
     }
 
     @Override
     public List<Film> getMostPopularFilms(int count) {
-        String sql = "select f.film_id, f.name, f.description, f.release_date, f.duration, f.rating_id " +
-                "from films as f left join film_likes as fl on f.film_id = fl.film_id " +
-                "group by f.film_id order by count(fl.user_id) desc limit ?";
-        return jdbcTemplate.query(sql, (rs, rowNum) -> makeFilm(rs), count);
+        String sql = SELECT_FILMS_SQL + " order by like_count desc, film_id limit ?";
+        List<Film> films = jdbcTemplate.query(sql, (rs, rowNum) -> makeFilm(rs), count);
+        hydrateFilms(films);
+        return films;
     }
 
-    private Set<Integer> getLikesInDb(int filmId) {
-        String sql = "select user_id from film_likes where film_id = ?";
-        List<Integer> userWhoLikedIds = jdbcTemplate.query(sql, (rs, rowNum) -> rs.getInt("user_id"),
-                filmId);
-        return new HashSet<>(userWhoLikedIds);
+    @Override
+    public Map<Integer, Integer> getLikeCounts() {
+        String sql = "select f.film_id, count(fl.user_id) as likes from films as f " +
+                "left join film_likes as fl on f.film_id = fl.film_id group by f.film_id";
+        Map<Integer, Integer> likeCounts = new HashMap<>();
+        jdbcTemplate.query(sql, rs -> {
+            likeCounts.put(rs.getInt("film_id"), rs.getInt("likes"));
+        });
+        return likeCounts;
+    }
+
+    public int reconcileLikeCounts() {
+        String sql = "update films as f set like_count = " +
+                "(select count(*) from film_likes as fl where fl.film_id = f.film_id) " +
+                "where like_count <> (select count(*) from film_likes as fl where fl.film_id = f.film_id)";
+        int repairedFilms = jdbcTemplate.update(sql);
+        if (repairedFilms > 0) {
+            log.warn("Like counters were repaired for {} films", repairedFilms);
+        }
+        return repairedFilms;
+    }
+
+    private void checkFilmAndUserExist(int filmId, int userId) {
+        String filmSql = "select count(*) from films where film_id = ?";
+        Integer films = jdbcTemplate.queryForObject(filmSql, Integer.class, filmId);
+        if (films == null || films == 0) {
+            throw new FilmNotFoundException(String.format("Фильм с идентификатором %d не найден", filmId));
+        }
+
+        String userSql = "select count(*) from users where user_id = ?";
+        Integer users = jdbcTemplate.queryForObject(userSql, Integer.class, userId);
+        if (users == null || users == 0) {
+            throw new UserNotFoundException(String.format("Пользователь с идентификатором %d не найден", userId));
+        }
+    }
+
+    private void flushStreamBatch(List<Film> batch, Consumer<Film> consumer) {
+        hydrateFilms(batch);
+        batch.forEach(consumer);
+        batch.clear();
     }
 
-    private TreeSet<Genre> getFilmGenresFromDb(int filmId) {
-        String sql = "select film_id, genre_id from film_genres where film_id = ?";
-        List<Genre> filmGenres = jdbcTemplate.query(sql, (rs, rowNum) -> makeGenre(rs), filmId);
-        return new TreeSet<>(filmGenres);
+    private void hydrateFilms(List<Film> films) {
+        Map<Integer, Film> idToFilm = mapFilmsById(films);
+        List<Integer> filmIds = new ArrayList<>(idToFilm.keySet());
+
+        for (int from = 0; from < filmIds.size(); from += IN_CLAUSE_CHUNK_SIZE) {
+            List<Integer> chunk = filmIds.subList(from, Math.min(from + IN_CLAUSE_CHUNK_SIZE, filmIds.size()));
+            attachLikesAndGenres(idToFilm, chunk);
+        }
+    }
+
+    private void hydrateAllFilms(List<Film> films) {
+        if (!films.isEmpty()) {
+            attachLikesAndGenres(mapFilmsById(films), null);
+        }
+    }
+
+    private Map<Integer, Film> mapFilmsById(List<Film> films) {
+        Map<Integer, Film> idToFilm = new LinkedHashMap<>();
+        for (Film film : films) {
+            idToFilm.put(film.getId(), film);
+        }
+        return idToFilm;
+    }
+
+    private void attachLikesAndGenres(Map<Integer, Film> idToFilm, List<Integer> filmIds) {
+        String likesSql = "select film_id, user_id from film_likes";
+        String genresSql = "select film_id, genre_id from film_genres";
+        Object[] args = new Object[0];
+
+        if (filmIds != null) {
+            String placeholders = String.join(", ", Collections.nCopies(filmIds.size(), "?"));
+            likesSql += " where film_id in (" + placeholders + ")";
+            genresSql += " where film_id in (" + placeholders + ")";
+            args = filmIds.toArray();
+        }
+
+        jdbcTemplate.query(likesSql, rs -> {
+            Film film = idToFilm.get(rs.getInt("film_id"));
+            if (film != null) {
+                film.getLikes().add(rs.getInt("user_id"));
+            }
+        }, args);
+
+        jdbcTemplate.query(genresSql, rs -> {
+            Film film = idToFilm.get(rs.getInt("film_id"));
+            if (film != null) {
+                film.getGenres().add(makeGenre(rs));
+            }
+        }, args);
+    }
+
+    private void insertFilms(List<Film> films) {
+        for (Film film : films) {
+            if (film.getMpa() != null) {
+                film.setMpa(getMpaById(film.getMpa().getId()));
+            }
+            TreeSet<Genre> genres = new TreeSet<>();
+            if (film.getGenres() != null) {
+                for (Genre genre : film.getGenres()) {
+                    genres.add(genreStorage.getGenreById(genre.getId()));
+                }
+            }
+            film.setGenres(genres);
+            if (film.getLikes() == null) {
+                film.setLikes(new IntHashSet());
+            }
+        }
+
+        jdbcTemplate.execute((ConnectionCallback<Void>) connection -> {
+            try (PreparedStatement ps = connection.prepareStatement(INSERT_FILM_SQL, new String[]{"film_id"})) {
+                for (Film film : films) {
+                    ps.setString(1, film.getName());
+                    ps.setString(2, film.getDescription());
+                    ps.setDate(3, Date.valueOf(film.getReleaseDate()));
+                    ps.setInt(4, film.getDuration());
+                    ps.setObject(5, film.getMpa() == null ? null : film.getMpa().getId(), Types.INTEGER);
+                    ps.setInt(6, film.getLikes().size());
+                    ps.addBatch();
+                }
+                ps.executeBatch();
+                try (ResultSet keys = ps.getGeneratedKeys()) {
+                    for (Film film : films) {
+                        keys.next();
+                        film.setId(keys.getInt(1));
+                    }
+                }
+            }
+            return null;
+        });
+
+        List<Object[]> genreArgs = new ArrayList<>();
+        List<Object[]> likeArgs = new ArrayList<>();
+        for (Film film : films) {
+            for (Genre genre : film.getGenres()) {
+                genreArgs.add(new Object[]{film.getId(), genre.getId()});
+            }
+            film.getLikes().forEachInt(userId -> likeArgs.add(new Object[]{film.getId(), userId}));
+        }
+        if (!genreArgs.isEmpty()) {
+            jdbcTemplate.batchUpdate("insert into film_genres(film_id, genre_id) values (?, ?)", genreArgs);
+        }
+        if (!likeArgs.isEmpty()) {
+            jdbcTemplate.batchUpdate("insert into film_likes(film_id, user_id) values (?, ?)", likeArgs);
+        }
+    }
+
+    private Long getVersionInDb(int filmId) {
+        List<Long> versions = jdbcTemplate.queryForList("select version from films where film_id = ?", Long.class,
+                filmId);
+        return versions.isEmpty() ? null : versions.get(0);
     }
 
     private Film makeFilm(ResultSet rs) throws SQLException {
@@ -232,21 +462,10 @@ public class FilmDbStorage implements FilmStorage {
         LocalDate releaseDate = rs.getDate("release_date").toLocalDate();
         int duration = rs.getInt("duration");
         int ratingId = rs.getInt("rating_id");
-        Rating rating = getMpaById(ratingId);
-        Set<Integer> likeIds = getLikesInDb(id);
-        TreeSet<Genre> genres = getFilmGenresFromDb(id);
+        Rating rating = rs.wasNull() ? null : getMpaById(ratingId);
         return Film.builder().id(id).name(name).description(description).releaseDate(releaseDate)
-                .duration(duration).mpa(rating).likes(likeIds).genres(genres).build();
-    }
-
-    public Map<String, Object> convertFilmToMap(Film film) {
-        Map<String, Object> values = new HashMap<>();
-        values.put("name", film.getName());
-        values.put("description", film.getDescription());
-        values.put("release_date", Date.valueOf(film.getReleaseDate()));
-        values.put("duration", film.getDuration());
-        values.put("rating_id", film.getMpa().getId());
-        return values;
+                .duration(duration).mpa(rating).likes(new IntHashSet()).genres(new TreeSet<>())
+                .version(rs.getLong("version")).build();
     }
 
     private Rating getMpaById(int id) {
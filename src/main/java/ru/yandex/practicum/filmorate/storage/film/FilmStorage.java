@@ -1,24 +1,42 @@
 package ru.yandex.practicum.filmorate.storage.film;
 
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmLike;
 
 import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
 
 public interface FilmStorage {
     Film getFilmById(int id);
 
     List<Film> getAllFilms();
 
+    void streamAllFilms(Consumer<Film> consumer);
+
+    List<Film> getFilms(int afterId, int limit);
+
+    List<Film> getFilmsByIds(List<Integer> ids);
+
     Film addFilm(Film film);
 
+    List<Film> addFilms(List<Film> films);
+
     Film updateFilm(Film film);
 
     void deleteFilm(int filmId);
 
-    void addLike(int filmId, int userId);
+    boolean addLike(int filmId, int userId);
 
-    void removeLike(int filmId, int userId);
+    boolean removeLike(int filmId, int userId);
 
+    boolean hasLike(int filmId, int userId);
+
+    int[] applyLikeChanges(List<FilmLike> addedLikes, List<FilmLike> removedLikes);
+
+    void streamLikes(Consumer<FilmLike> consumer);
 
     List<Film> getMostPopularFilms(int count);
+
+    Map<Integer, Integer> getLikeCounts();
 }
@@ -4,85 +4,227 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
 import ru.yandex.practicum.filmorate.exceptions.FilmAlreadyExistsException;
 import ru.yandex.practicum.filmorate.exceptions.FilmNotFoundException;
+import ru.yandex.practicum.filmorate.exceptions.FilmUpdateConflictException;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmLike;
+import ru.yandex.practicum.filmorate.util.ConcurrentIntSet;
+import ru.yandex.practicum.filmorate.util.IntHashSet;
 
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 @Component
 @Slf4j
 public class InMemoryFilmStorage implements FilmStorage {
-    private Map<Integer, Film> idToFilm = new HashMap<>();
-    private int generatedId = 0;
+    private final ConcurrentSkipListMap<Integer, Film> idToFilm = new ConcurrentSkipListMap<>();
+    private final ConcurrentHashMap<Integer, ConcurrentIntSet> filmIdToLikes = new ConcurrentHashMap<>();
+    private final AtomicInteger generatedId = new AtomicInteger();
 
     @Override
     public Film getFilmById(int id) {
-        if (!idToFilm.containsKey(id)) {
+        Film film = idToFilm.get(id);
+        if (film == null) {
             log.error("Film with id {} was not found", id);
             throw new FilmNotFoundException(String.format("Фильм с id %d не найден", id));
         }
-        return idToFilm.get(id);
+        return copyOf(film);
     }
 
     @Override
     public List<Film> getAllFilms() {
-        return new ArrayList<>(idToFilm.values());
+        return idToFilm.values().stream().map(this::copyOf).collect(Collectors.toList());
+    }
+
+    @Override
+    public void streamAllFilms(Consumer<Film> consumer) {
+        idToFilm.values().forEach(film -> consumer.accept(copyOf(film)));
+    }
+
+    @Override
+    public List<Film> getFilms(int afterId, int limit) {
+        return idToFilm.tailMap(afterId, false).values().stream().limit(limit).map(this::copyOf)
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public List<Film> getFilmsByIds(List<Integer> ids) {
+        return ids.stream().map(idToFilm::get).filter(Objects::nonNull).map(this::copyOf)
+                .collect(Collectors.toList());
     }
 
     @Override
     public Film addFilm(Film film) {
-        if (idToFilm.containsKey(film.getId())) {
+        if (film.getId() != null && idToFilm.containsKey(film.getId())) {
             log.error("Film with id {} already exists", film.getId());
             throw new FilmAlreadyExistsException(String.format("Ошибка при создании фильма. Фильм с id %d " +
                     "уже существует", film.getId()));
         }
-        int id = generateId();
+        int id = generatedId.incrementAndGet();
         film.setId(id);
-        idToFilm.put(id, film);
+        if (film.getLikes() == null) {
+            film.setLikes(new IntHashSet());
+        }
+        filmIdToLikes.put(id, newLikeSet(film.getLikes()));
+        Film storedFilm = copyOf(film, film.getLikes());
+        storedFilm.setVersion(0L);
+        idToFilm.put(id, storedFilm);
         return film;
     }
 
+    @Override
+    public List<Film> addFilms(List<Film> films) {
+        films.forEach(this::addFilm);
+        return films;
+    }
+
     @Override
     public Film updateFilm(Film film) {
-        if (!idToFilm.containsKey(film.getId())) {
+        if (film.getLikes() == null) {
+            film.setLikes(new IntHashSet());
+        }
+        ConcurrentIntSet likes = filmIdToLikes.computeIfPresent(film.getId(), (id, currentLikes) -> {
+            long currentVersion = idToFilm.get(id).getVersion();
+            if (film.getVersion() != null && film.getVersion() != currentVersion) {
+                throw new FilmUpdateConflictException(String.format("Фильм с идентификатором %d был изменён " +
+                        "другим запросом: ожидалась версия %d, текущая версия %d", id, film.getVersion(),
+                        currentVersion));
+            }
+            film.setVersion(currentVersion + 1);
+            idToFilm.put(id, copyOf(film, film.getLikes()));
+            return newLikeSet(film.getLikes());
+        });
+        if (likes == null) {
             log.error("Film with id {} does not exist", film.getId());
             throw new FilmNotFoundException(String.format("Ошибка при обновлении фильма. Фильма с id %d" +
                     "не существует", film.getId()));
         }
-        idToFilm.replace(film.getId(), film);
         return film;
     }
 
     @Override
     public void deleteFilm(int filmId) {
-        if (!idToFilm.containsKey(filmId)) {
+        boolean[] deleted = new boolean[1];
+        filmIdToLikes.computeIfPresent(filmId, (id, likes) -> {
+            idToFilm.remove(id);
+            deleted[0] = true;
+            return null;
+        });
+        if (!deleted[0]) {
             log.error("Film with id {} does not exist", filmId);
             throw new FilmNotFoundException(String.format("Ошибка при удалении фильма. Фильма с id %d" +
                     "не существует", filmId));
         }
-        idToFilm.remove(filmId);
     }
 
     @Override
-    public void addLike(int filmId, int userId) {
-        idToFilm.get(filmId).addLike(userId);
+    public boolean addLike(int filmId, int userId) {
+        boolean[] added = new boolean[1];
+        updateLikes(filmId, likes -> added[0] = likes.add(userId));
+        return added[0];
+    }
+
+    @Override
+    public boolean removeLike(int filmId, int userId) {
+        boolean[] removed = new boolean[1];
+        updateLikes(filmId, likes -> removed[0] = likes.remove(userId));
+        return removed[0];
+    }
+
+    @Override
+    public boolean hasLike(int filmId, int userId) {
+        return getLikes(filmId).contains(userId);
     }
 
     @Override
-    public void removeLike(int filmId, int userId) {
-        idToFilm.get(filmId).removeLike(userId);
+    public int[] applyLikeChanges(List<FilmLike> addedLikes, List<FilmLike> removedLikes) {
+        int[] addedCounts = addedLikes.stream().mapToInt(like -> filmIdToLikes.containsKey(like.getFilmId())
+                && addLike(like.getFilmId(), like.getUserId()) ? 1 : 0).toArray();
+        removedLikes.stream().filter(like -> filmIdToLikes.containsKey(like.getFilmId()))
+                .forEach(like -> removeLike(like.getFilmId(), like.getUserId()));
+        return addedCounts;
+    }
+
+    @Override
+    public void streamLikes(Consumer<FilmLike> consumer) {
+        filmIdToLikes.forEach((filmId, likes) -> {
+            for (int userId : likes.toSortedArray()) {
+                consumer.accept(new FilmLike(filmId, userId));
+            }
+        });
     }
 
     @Override
     public List<Film> getMostPopularFilms(int count) {
-        return idToFilm.values().stream().sorted((film1, film2) -> Integer.compare(film2.getLikes().size(),
-                film1.getLikes().size())).limit(count).collect(Collectors.toList());
+        if (count <= 0) {
+            return new ArrayList<>();
+        }
+        Comparator<int[]> byPopularity = Comparator.<int[]>comparingInt(entry -> entry[1])
+                .thenComparing(entry -> entry[0], Comparator.reverseOrder());
+        PriorityQueue<int[]> top = new PriorityQueue<>(count, byPopularity);
+        filmIdToLikes.forEach((filmId, likes) -> {
+            int[] entry = {filmId, likes.size()};
+            if (top.size() < count) {
+                top.add(entry);
+            } else if (byPopularity.compare(entry, top.peek()) > 0) {
+                top.poll();
+                top.add(entry);
+            }
+        });
+
+        List<Integer> ids = new ArrayList<>(top.size());
+        while (!top.isEmpty()) {
+            ids.add(top.poll()[0]);
+        }
+        Collections.reverse(ids);
+        return getFilmsByIds(ids);
+    }
+
+    @Override
+    public Map<Integer, Integer> getLikeCounts() {
+        Map<Integer, Integer> likeCounts = new HashMap<>();
+        filmIdToLikes.forEach((filmId, likes) -> likeCounts.put(filmId, likes.size()));
+        return likeCounts;
+    }
+
+    private ConcurrentIntSet getLikes(int filmId) {
+        ConcurrentIntSet likes = filmIdToLikes.get(filmId);
+        if (likes == null) {
+            log.error("Film with id {} was not found", filmId);
+            throw new FilmNotFoundException(String.format("Фильм с id %d не найден", filmId));
+        }
+        return likes;
+    }
+
+    private void updateLikes(int filmId, Consumer<ConcurrentIntSet> update) {
+        ConcurrentIntSet likes = filmIdToLikes.computeIfPresent(filmId, (id, currentLikes) -> {
+            update.accept(currentLikes);
+            return currentLikes;
+        });
+        if (likes == null) {
+            log.error("Film with id {} was not found", filmId);
+            throw new FilmNotFoundException(String.format("Фильм с id %d не найден", filmId));
+        }
+    }
+
+    private ConcurrentIntSet newLikeSet(IntHashSet likes) {
+        ConcurrentIntSet likeSet = new ConcurrentIntSet();
+        likeSet.replaceWith(likes);
+        return likeSet;
+    }
+
+    private Film copyOf(Film film) {
+        ConcurrentIntSet likes = filmIdToLikes.get(film.getId());
+        return copyOf(film, likes == null ? new IntHashSet() : likes.toIntHashSet());
     }
 
-    private int generateId() {
-        return ++generatedId;
+    private Film copyOf(Film film, IntHashSet likes) {
+        return Film.builder().id(film.getId()).name(film.getName()).description(film.getDescription())
+                .releaseDate(film.getReleaseDate()).duration(film.getDuration()).mpa(film.getMpa())
+                .genres(film.getGenres() == null ? new TreeSet<>() : new TreeSet<>(film.getGenres()))
+                .likes(new IntHashSet(likes)).version(film.getVersion()).build();
     }
 }
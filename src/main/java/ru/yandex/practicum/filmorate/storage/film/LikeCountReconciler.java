@@ -0,0 +1,20 @@
+package ru.yandex.practicum.filmorate.storage.film;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class LikeCountReconciler {
+    private final FilmDbStorage filmDbStorage;
+
+    @Scheduled(initialDelayString = "${filmorate.likes.reconcile-interval-ms}",
+            fixedDelayString = "${filmorate.likes.reconcile-interval-ms}")
+    public void reconcile() {
+        int repairedFilms = filmDbStorage.reconcileLikeCounts();
+        log.info("Like counters reconciliation finished, repaired films: {}", repairedFilms);
+    }
+}
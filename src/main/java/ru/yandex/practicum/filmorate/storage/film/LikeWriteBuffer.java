@@ -0,0 +1,196 @@
+package ru.yandex.practicum.filmorate.storage.film;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmLike;
+import ru.yandex.practicum.filmorate.storage.user.UserStorage;
+import ru.yandex.practicum.filmorate.util.IntHashSet;
+
+import javax.annotation.PreDestroy;
+import java.util.*;
+
+@Component
+@Slf4j
+public class LikeWriteBuffer {
+    private final CachedFilmStorage filmStorage;
+    private final UserStorage userStorage;
+    private final boolean enabled;
+    private final int maxPending;
+    private final Object flushLock = new Object();
+
+    private Map<FilmLike, Boolean> pending = new HashMap<>();
+    private Map<FilmLike, Boolean> inFlight = Collections.emptyMap();
+    private final IntHashSet knownUserIds = new IntHashSet();
+    private long flushes;
+    private boolean flushFailed;
+
+    public LikeWriteBuffer(CachedFilmStorage filmStorage, @Qualifier("UserDbStorage") UserStorage userStorage,
+                           @Value("${filmorate.likes.write-behind.enabled}") boolean enabled,
+                           @Value("${filmorate.likes.write-behind.max-pending}") int maxPending) {
+        this.filmStorage = filmStorage;
+        this.userStorage = userStorage;
+        this.enabled = enabled;
+        this.maxPending = maxPending;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public boolean addLike(int filmId, int userId) {
+        return change(new FilmLike(filmId, userId), true);
+    }
+
+    public boolean removeLike(int filmId, int userId) {
+        return change(new FilmLike(filmId, userId), false);
+    }
+
+    public synchronized void removeUser(int userId) {
+        knownUserIds.remove(userId);
+        pending.keySet().removeIf(like -> like.getUserId() == userId);
+    }
+
+    public synchronized int getPendingCount() {
+        return pending.size();
+    }
+
+    public void applyPendingLikes(Collection<Film> films) {
+        if (!enabled) {
+            return;
+        }
+        synchronized (this) {
+            if (pending.isEmpty() && inFlight.isEmpty()) {
+                return;
+            }
+            Map<Integer, Film> idToFilm = new HashMap<>();
+            for (Film film : films) {
+                idToFilm.put(film.getId(), film);
+            }
+            applyTo(idToFilm, inFlight);
+            applyTo(idToFilm, pending);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${filmorate.likes.write-behind.flush-interval-ms}")
+    public void flush() {
+        synchronized (flushLock) {
+            Map<FilmLike, Boolean> batch;
+            synchronized (this) {
+                if (pending.isEmpty()) {
+                    return;
+                }
+                batch = pending;
+                inFlight = batch;
+                pending = new HashMap<>();
+            }
+
+            List<FilmLike> addedLikes = new ArrayList<>();
+            List<FilmLike> removedLikes = new ArrayList<>();
+            batch.forEach((like, liked) -> (liked ? addedLikes : removedLikes).add(like));
+            try {
+                filmStorage.applyLikeChanges(addedLikes, removedLikes);
+                log.info("Flushed buffered likes: {} added, {} removed", addedLikes.size(), removedLikes.size());
+                synchronized (this) {
+                    flushFailed = false;
+                }
+            } catch (RuntimeException e) {
+                log.error("Failed to flush {} buffered likes, they will be retried", batch.size(), e);
+                synchronized (this) {
+                    batch.forEach(pending::putIfAbsent);
+                    flushFailed = true;
+                }
+            } finally {
+                synchronized (this) {
+                    inFlight = Collections.emptyMap();
+                    flushes++;
+                }
+            }
+        }
+    }
+
+    @PreDestroy
+    public void drain() {
+        flush();
+        int lostLikes = getPendingCount();
+        if (lostLikes > 0) {
+            log.error("{} buffered likes could not be written before shutdown", lostLikes);
+        }
+    }
+
+    private boolean change(FilmLike like, boolean liked) {
+        checkUserExists(like.getUserId());
+        while (true) {
+            Boolean bufferedState;
+            long observedFlushes;
+            synchronized (this) {
+                bufferedState = getBufferedState(like);
+                observedFlushes = flushes;
+            }
+            boolean persistedState = bufferedState == null && filmStorage.hasCachedLike(like.getFilmId(), like.getUserId());
+
+            boolean full;
+            boolean direct = false;
+            synchronized (this) {
+                bufferedState = getBufferedState(like);
+                if (bufferedState == null && flushes != observedFlushes) {
+                    continue;
+                }
+                boolean currentState = bufferedState == null ? persistedState : bufferedState;
+                if (currentState == liked) {
+                    return false;
+                }
+                if (pending.containsKey(like) && !inFlight.containsKey(like)) {
+                    pending.remove(like);
+                } else if (bufferedState == null && flushFailed && pending.size() >= maxPending) {
+                    direct = true;
+                } else {
+                    pending.put(like, liked);
+                }
+                full = !flushFailed && pending.size() >= maxPending;
+            }
+            if (direct) {
+                return liked ? filmStorage.addLike(like.getFilmId(), like.getUserId())
+                        : filmStorage.removeLike(like.getFilmId(), like.getUserId());
+            }
+            if (full) {
+                flush();
+            }
+            return true;
+        }
+    }
+
+    private void checkUserExists(int userId) {
+        synchronized (this) {
+            if (knownUserIds.contains(userId)) {
+                return;
+            }
+        }
+        userStorage.getUserById(userId, false);
+        synchronized (this) {
+            knownUserIds.add(userId);
+        }
+    }
+
+    private Boolean getBufferedState(FilmLike like) {
+        Boolean state = pending.get(like);
+        return state == null ? inFlight.get(like) : state;
+    }
+
+    private void applyTo(Map<Integer, Film> idToFilm, Map<FilmLike, Boolean> changes) {
+        changes.forEach((like, liked) -> {
+            Film film = idToFilm.get(like.getFilmId());
+            if (film == null) {
+                return;
+            }
+            if (liked) {
+                film.addLike(like.getUserId());
+            } else {
+                film.removeLike(like.getUserId());
+            }
+        });
+    }
+}
@@ -0,0 +1,47 @@
+package ru.yandex.practicum.filmorate.storage.genre;
+
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.storage.ReferenceDataCache;
+
+import javax.annotation.PostConstruct;
+import java.util.List;
+
+@Primary
+@Component
+public class CachedGenreStorage implements GenreStorage {
+    private final ReferenceDataCache<Genre> cache;
+
+    public CachedGenreStorage(GenreDbStorage genreDbStorage) {
+        this.cache = new ReferenceDataCache<>("Genre", Genre::getId, genreDbStorage::getAllgenres,
+                genreDbStorage::getGenreById);
+    }
+
+    @PostConstruct
+    public void refresh() {
+        cache.refresh();
+    }
+
+    @Override
+    public List<Genre> getAllgenres() {
+        return cache.getAll();
+    }
+
+    @Override
+    public Genre getGenreById(int id) {
+        return cache.getById(id);
+    }
+
+    public long getVersion() {
+        return cache.getVersion();
+    }
+
+    public long getHits() {
+        return cache.getHits();
+    }
+
+    public long getMisses() {
+        return cache.getMisses();
+    }
+}
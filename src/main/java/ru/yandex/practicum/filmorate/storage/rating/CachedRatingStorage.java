@@ -0,0 +1,47 @@
+package ru.yandex.practicum.filmorate.storage.rating;
+
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.model.Rating;
+import ru.yandex.practicum.filmorate.storage.ReferenceDataCache;
+
+import javax.annotation.PostConstruct;
+import java.util.List;
+
+@Primary
+@Component
+public class CachedRatingStorage implements RatingStorage {
+    private final ReferenceDataCache<Rating> cache;
+
+    public CachedRatingStorage(RatingDbStorage ratingDbStorage) {
+        this.cache = new ReferenceDataCache<>("Rating", Rating::getId, ratingDbStorage::getAllRatings,
+                ratingDbStorage::getRatingById);
+    }
+
+    @PostConstruct
+    public void refresh() {
+        cache.refresh();
+    }
+
+    @Override
+    public List<Rating> getAllRatings() {
+        return cache.getAll();
+    }
+
+    @Override
+    public Rating getRatingById(int id) {
+        return cache.getById(id);
+    }
+
+    public long getVersion() {
+        return cache.getVersion();
+    }
+
+    public long getHits() {
+        return cache.getHits();
+    }
+
+    public long getMisses() {
+        return cache.getMisses();
+    }
+}
@@ -4,96 +4,214 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
 import ru.yandex.practicum.filmorate.exceptions.UserAlreadyExistsException;
 import ru.yandex.practicum.filmorate.exceptions.UserNotFoundException;
+import ru.yandex.practicum.filmorate.exceptions.UserUpdateConflictException;
+import ru.yandex.practicum.filmorate.model.Friendship;
 import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.util.ConcurrentIntSet;
+import ru.yandex.practicum.filmorate.util.IntHashSet;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 @Component
 @Slf4j
 public class InMemoryUserStorage implements UserStorage {
-    private Map<Integer, User> idToUser = new HashMap<>();
-    private int generatedId = 0;
+    private final ConcurrentSkipListMap<Integer, User> idToUser = new ConcurrentSkipListMap<>();
+    private final ConcurrentHashMap<Integer, ConcurrentIntSet> userIdToFriendIds = new ConcurrentHashMap<>();
+    private final AtomicInteger generatedId = new AtomicInteger();
 
     @Override
     public User getUserById(int id) {
-        if (!idToUser.containsKey(id)) {
-            log.error("User with id {} was not found", id);
-            throw new UserNotFoundException(String.format("Пользователь с id %d не найден", id));
-        }
-        return idToUser.get(id);
+        return copyOf(getStoredUser(id));
+    }
+
+    @Override
+    public User getUserById(int id, boolean withFriendIds) {
+        return getUserById(id);
     }
 
     @Override
     public List<User> getAllUsers() {
-        return new ArrayList<>(idToUser.values());
+        return idToUser.values().stream().map(this::copyOf).collect(Collectors.toList());
+    }
+
+    @Override
+    public void streamAllUsers(Consumer<User> consumer) {
+        idToUser.values().forEach(user -> consumer.accept(copyOf(user)));
+    }
+
+    @Override
+    public List<User> getUsers(int afterId, int limit) {
+        return idToUser.tailMap(afterId, false).values().stream().limit(limit).map(this::copyOf)
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public List<User> getUsersByIds(List<Integer> ids) {
+        return getUsersByIds(ids.stream().mapToInt(Integer::intValue).toArray());
     }
 
     @Override
     public User addUser(User user) {
-        if (idToUser.containsKey(user.getId())) {
+        if (user.getId() != null && idToUser.containsKey(user.getId())) {
             log.error("User with id {} already exists", user.getId());
             throw new UserAlreadyExistsException(String.format("Ошибка при создании пользователя. Пользователь" +
                     "с id %d уже существует", user.getId()));
         }
-        int id = generateId();
+        int id = generatedId.incrementAndGet();
         user.setId(id);
         replaceNameWithLoginIfNameIsEmpty(user);
-        idToUser.put(id, user);
+        if (user.getFriendIds() == null) {
+            user.setFriendIds(new IntHashSet());
+        }
+        ConcurrentIntSet friendIds = new ConcurrentIntSet();
+        friendIds.replaceWith(user.getFriendIds());
+        userIdToFriendIds.put(id, friendIds);
+        User storedUser = copyOf(user, friendIds);
+        storedUser.setVersion(0L);
+        idToUser.put(id, storedUser);
         return user;
     }
 
+    @Override
+    public List<User> addUsers(List<User> users) {
+        users.forEach(this::addUser);
+        return users;
+    }
+
     @Override
     public User updateUser(User user) {
-        if (!idToUser.containsKey(user.getId())) {
+        replaceNameWithLoginIfNameIsEmpty(user);
+        ConcurrentIntSet friendIds = userIdToFriendIds.computeIfPresent(user.getId(), (id, currentFriendIds) -> {
+            long currentVersion = idToUser.get(id).getVersion();
+            if (user.getVersion() != null && user.getVersion() != currentVersion) {
+                throw new UserUpdateConflictException(String.format("Пользователь с идентификатором %d был изменён " +
+                        "другим запросом: ожидалась версия %d, текущая версия %d", id, user.getVersion(),
+                        currentVersion));
+            }
+            user.setVersion(currentVersion + 1);
+            if (user.getFriendIds() != null) {
+                currentFriendIds.replaceWith(user.getFriendIds());
+            }
+            idToUser.put(id, copyOf(user, currentFriendIds));
+            return currentFriendIds;
+        });
+        if (friendIds == null) {
             log.error("User with id {} does not exist", user.getId());
             throw new UserNotFoundException(String.format("Ошибка при обновлении пользователя. Пользователя" +
                     "с id %d не существует", user.getId()));
         }
-        replaceNameWithLoginIfNameIsEmpty(user);
-        idToUser.replace(user.getId(), user);
         return user;
     }
 
     @Override
     public void deleteUser(int userId) {
-        if (!idToUser.containsKey(userId)) {
+        boolean[] deleted = new boolean[1];
+        userIdToFriendIds.computeIfPresent(userId, (id, friendIds) -> {
+            idToUser.remove(id);
+            deleted[0] = true;
+            return null;
+        });
+        if (!deleted[0]) {
             log.error("User with id {} does not exist", userId);
             throw new UserNotFoundException(String.format("Ошибка при удалении пользователя. Пользователя" +
                     "с id %d не существует", userId));
         }
-        idToUser.remove(userId);
+        for (Integer otherUserId : userIdToFriendIds.keySet()) {
+            userIdToFriendIds.computeIfPresent(otherUserId, (id, friendIds) -> {
+                friendIds.remove(userId);
+                return friendIds;
+            });
+        }
     }
 
     @Override
-    public void addFriend(int userId, int otherUserId) {
-        User user = getUserById(userId);
-        getUserById(otherUserId);
-        user.addFriend(otherUserId);
-        updateUser(user);
+    public boolean addFriend(int userId, int otherUserId) {
+        boolean[] added = new boolean[1];
+        updateFriendIds(userId, otherUserId, friendIds -> added[0] = friendIds.add(otherUserId));
+        return added[0];
     }
 
     @Override
-    public void removeFriend(int userId, int otherUserId) {
-        User user = getUserById(userId);
-        getUserById(otherUserId);
-        user.removeFriend(otherUserId);
-        updateUser(user);
+    public boolean removeFriend(int userId, int otherUserId) {
+        boolean[] removed = new boolean[1];
+        updateFriendIds(userId, otherUserId, friendIds -> removed[0] = friendIds.remove(otherUserId));
+        return removed[0];
     }
 
     @Override
-    public List<User> getUserFriends(int userId) {
-        User user = getUserById(userId);
-        return user.getFriendIds().stream().map(this::getUserById).collect(Collectors.toList());
+    public void addFriendships(List<Friendship> friendships) {
+        friendships.forEach(friendship -> addFriend(friendship.getUserId(), friendship.getFriendId()));
+    }
+
+    @Override
+    public void streamFriendships(Consumer<Friendship> consumer) {
+        userIdToFriendIds.forEach((userId, friendIds) -> {
+            for (int friendId : friendIds.toSortedArray()) {
+                consumer.accept(new Friendship(userId, friendId));
+            }
+        });
     }
 
     @Override
-    public List<User> getCommonFriends(int userId, int otherUserId) {
-        User user = getUserById(userId);
-        User otherUser = getUserById(otherUserId);
-        Set<Integer> commonFriendsIds = new HashSet<>(user.getFriendIds());
-        commonFriendsIds.retainAll(otherUser.getFriendIds());
-        return commonFriendsIds.stream().map(this::getUserById).collect(Collectors.toList());
+    public List<User> getUserFriends(int userId) {
+        return getUsersByIds(getFriendIds(userId).toSortedArray());
+    }
+
+    private User getStoredUser(int id) {
+        User user = idToUser.get(id);
+        if (user == null) {
+            log.error("User with id {} was not found", id);
+            throw new UserNotFoundException(String.format("Пользователь с id %d не найден", id));
+        }
+        return user;
+    }
+
+    private ConcurrentIntSet getFriendIds(int userId) {
+        ConcurrentIntSet friendIds = userIdToFriendIds.get(userId);
+        if (friendIds == null) {
+            log.error("User with id {} was not found", userId);
+            throw new UserNotFoundException(String.format("Пользователь с id %d не найден", userId));
+        }
+        return friendIds;
+    }
+
+    private void updateFriendIds(int userId, int otherUserId, Consumer<ConcurrentIntSet> update) {
+        ConcurrentIntSet friendIds = userIdToFriendIds.computeIfPresent(userId, (id, currentFriendIds) -> {
+            getStoredUser(otherUserId);
+            update.accept(currentFriendIds);
+            return currentFriendIds;
+        });
+        if (friendIds == null) {
+            log.error("User with id {} was not found", userId);
+            throw new UserNotFoundException(String.format("Пользователь с id %d не найден", userId));
+        }
+    }
+
+    private List<User> getUsersByIds(int[] ids) {
+        List<User> users = new ArrayList<>(ids.length);
+        for (int id : ids) {
+            User user = idToUser.get(id);
+            if (user != null) {
+                users.add(copyOf(user));
+            }
+        }
+        return users;
+    }
+
+    private User copyOf(User user) {
+        ConcurrentIntSet friendIds = userIdToFriendIds.get(user.getId());
+        return copyOf(user, friendIds == null ? new ConcurrentIntSet() : friendIds);
+    }
+
+    private User copyOf(User user, ConcurrentIntSet friendIds) {
+        IntHashSet friendIdSet = friendIds.toIntHashSet();
+        return User.builder().id(user.getId()).email(user.getEmail()).login(user.getLogin()).name(user.getName())
+                .birthday(user.getBirthday()).friendIds(friendIdSet).version(user.getVersion()).build();
     }
 
     private void replaceNameWithLoginIfNameIsEmpty(User user) {
@@ -101,8 +219,4 @@ public class InMemoryUserStorage implements UserStorage {
             user.setName(user.getLogin());
         }
     }
-
-    private int generateId() {
-        return ++generatedId;
-    }
 }
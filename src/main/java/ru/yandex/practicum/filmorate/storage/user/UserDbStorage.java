@@ -2,76 +2,132 @@ package ru.yandex.practicum.filmorate.storage.user;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.ConnectionCallback;
 import org.springframework.jdbc.core.JdbcTemplate;
-import org.springframework.jdbc.core.simple.SimpleJdbcInsert;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
 import ru.yandex.practicum.filmorate.exceptions.UserAlreadyExistsException;
 import ru.yandex.practicum.filmorate.exceptions.UserNotFoundException;
+import ru.yandex.practicum.filmorate.exceptions.UserUpdateConflictException;
+import ru.yandex.practicum.filmorate.model.Friendship;
 import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.LinkTableWriter;
+import ru.yandex.practicum.filmorate.storage.LinkTableWriter.LinkTable;
+import ru.yandex.practicum.filmorate.util.IntHashSet;
 
 import java.sql.Date;
+import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.time.LocalDate;
 import java.util.*;
+import java.util.function.Consumer;
 
 @Component("UserDbStorage")
 @RequiredArgsConstructor
 @Slf4j
 public class UserDbStorage implements UserStorage {
+    private static final String SELECT_USERS_SQL = "select user_id, login, name, email, birthday, version from users";
+    private static final String INSERT_USER_SQL = "insert into users(email, login, name, birthday) " +
+            "values (?, ?, ?, ?)";
+    private static final int IN_CLAUSE_CHUNK_SIZE = 1000;
+
     private final JdbcTemplate jdbcTemplate;
+    private final LinkTableWriter linkTableWriter;
+
+    @Value("${filmorate.streaming.fetch-size}")
+    private int streamingFetchSize;
 
     @Override
     public User getUserById(int id) {
-        String sql = "select user_id, login, name, email, birthday from users where user_id = ?";
-        try {
-            return jdbcTemplate.queryForObject(sql, (rs, rowNum) -> makeUser(rs), id);
-        } catch (EmptyResultDataAccessException e) {
+        return getUserById(id, true);
+    }
+
+    @Override
+    public User getUserById(int id, boolean withFriendIds) {
+        String sql = SELECT_USERS_SQL + " where user_id = ?";
+        List<User> users = jdbcTemplate.query(sql, (rs, rowNum) -> makeUser(rs), id);
+        if (users.isEmpty()) {
             throw new UserNotFoundException(String.format("Пользователь с идентификатором %d не найден", id));
         }
+        if (withFriendIds) {
+            loadFriendIds(users);
+        }
+        return users.get(0);
     }
 
     @Override
     public List<User> getAllUsers() {
-        String sql = "select user_id, login, name, email, birthday from users";
-        return jdbcTemplate.query(sql, (rs, rowNum) -> makeUser(rs));
+        List<User> users = jdbcTemplate.query(SELECT_USERS_SQL, (rs, rowNum) -> makeUser(rs));
+        if (!users.isEmpty()) {
+            attachFriendIds(mapUsersById(users), null);
+        }
+        return users;
     }
 
     @Override
-    public User addUser(User user) {
-        if (user.getId() != null) {
-            String sql = "select user_id, login, name, email, birthday from users where user_id = ?";
-            List<User> users = jdbcTemplate.query(sql, (rs, rowNum) -> makeUser(rs), user.getId());
-            if (users.size() != 0) {
-                throw new UserAlreadyExistsException(String.format("Пользователь с id %d уже существует",
-                        user.getId()));
+    @Transactional(readOnly = true)
+    public void streamAllUsers(Consumer<User> consumer) {
+        List<User> batch = new ArrayList<>(streamingFetchSize);
+        jdbcTemplate.query(con -> {
+            PreparedStatement statement = con.prepareStatement(SELECT_USERS_SQL + " order by user_id");
+            statement.setFetchSize(streamingFetchSize);
+            return statement;
+        }, rs -> {
+            batch.add(makeUser(rs));
+            if (batch.size() == streamingFetchSize) {
+                flushStreamBatch(batch, consumer);
             }
-        }
-
-        replaceNameWithLoginIfNameIsEmpty(user);
+        });
+        flushStreamBatch(batch, consumer);
+    }
 
-        SimpleJdbcInsert simpleJdbcInsert = new SimpleJdbcInsert(jdbcTemplate)
-                .withTableName("users")
-                .usingGeneratedKeyColumns("user_id");
-        int userId = simpleJdbcInsert.executeAndReturnKey(convertUserToMap(user)).intValue();
-        user.setId(userId);
+    @Override
+    public List<User> getUsers(int afterId, int limit) {
+        String sql = SELECT_USERS_SQL + " where user_id > ? order by user_id limit ?";
+        List<User> users = jdbcTemplate.query(sql, (rs, rowNum) -> makeUser(rs), afterId, limit);
+        loadFriendIds(users);
+        return users;
+    }
 
-        if (user.getFriendIds() == null) {
-            user.setFriendIds(new HashSet<>());
-            return user;
+    @Override
+    public List<User> getUsersByIds(List<Integer> ids) {
+        Map<Integer, User> idToUser = new HashMap<>();
+
+        for (int from = 0; from < ids.size(); from += IN_CLAUSE_CHUNK_SIZE) {
+            List<Integer> chunk = ids.subList(from, Math.min(from + IN_CLAUSE_CHUNK_SIZE, ids.size()));
+            String sql = SELECT_USERS_SQL + " where user_id in (" +
+                    String.join(", ", Collections.nCopies(chunk.size(), "?")) + ")";
+            List<User> users = jdbcTemplate.query(sql, (rs, rowNum) -> makeUser(rs), chunk.toArray());
+            loadFriendIds(users);
+            users.forEach(user -> idToUser.put(user.getId(), user));
         }
 
-        String insertFriendIdsSql = "insert into friends (user_id, friend_id) VALUES (?, ?)";
-
-        List<Object[]> batchArgsList = new ArrayList<>();
+        List<User> orderedUsers = new ArrayList<>(idToUser.size());
+        for (Integer id : ids) {
+            User user = idToUser.get(id);
+            if (user != null) {
+                orderedUsers.add(user);
+            }
+        }
+        return orderedUsers;
+    }
 
-        for (Integer friendId : user.getFriendIds()) {
-            Object[] objectArray = {userId, friendId};
-            batchArgsList.add(objectArray);
+    @Override
+    public User addUser(User user) {
+        if (user.getId() != null) {
+            String sql = "select count(*) from users where user_id = ?";
+            Integer users = jdbcTemplate.queryForObject(sql, Integer.class, user.getId());
+            if (users != null && users != 0) {
+                throw new UserAlreadyExistsException(String.format("Пользователь с id %d уже существует",
+                        user.getId()));
+            }
         }
 
-        jdbcTemplate.batchUpdate(insertFriendIdsSql, batchArgsList);
+        insertUsers(Collections.singletonList(user));
 
         log.info("New user was added to database: {}", user);
 
@@ -79,48 +135,53 @@ public class UserDbStorage implements UserStorage {
     }
 
     @Override
-    public User updateUser(User user) {
-        getUserById(user.getId());
-        replaceNameWithLoginIfNameIsEmpty(user);
+    @Transactional
+    public List<User> addUsers(List<User> users) {
+        insertUsers(users);
+        log.info("{} users are added to database", users.size());
+        return users;
+    }
 
-        String sql = "update users set " +
-                "email = ?, login = ?, name = ?, birthday = ?" +
-                "where user_id = ?";
-        jdbcTemplate.update(sql, user.getEmail(), user.getLogin(), user.getName(), Date.valueOf(user.getBirthday()),
-                user.getId());
+    @Override
+    @Transactional
+    public void addFriendships(List<Friendship> friendships) {
+        jdbcTemplate.batchUpdate("insert into friends(user_id, friend_id) values (?, ?)", friendships,
+                friendships.size(), (ps, friendship) -> {
+                    ps.setInt(1, friendship.getUserId());
+                    ps.setInt(2, friendship.getFriendId());
+                });
+        log.info("{} friendships are added to database", friendships.size());
+    }
 
+    @Override
+    @Transactional
+    public User updateUser(User user) {
+        replaceNameWithLoginIfNameIsEmpty(user);
         if (user.getFriendIds() == null) {
-            user.setFriendIds(new HashSet<>());
+            user.setFriendIds(new IntHashSet());
         }
 
-        Set<Integer> friendsToDeleteFromDb = new HashSet<>(getFriendIdsInDb(user.getId()));
-
-        friendsToDeleteFromDb.removeAll(user.getFriendIds());
-
-        String deleteFriendsSql = "delete from friends where user_id = ? and friend_id = ?";
-
-        List<Object[]> batchArgsList = new ArrayList<>();
-
-        for (Integer friendId : friendsToDeleteFromDb) {
-            Object[] objectArray = {user.getId(), friendId};
-            batchArgsList.add(objectArray);
+        String sql = "update users set email = ?, login = ?, name = ?, birthday = ?, version = version + 1 " +
+                "where user_id = ?";
+        List<Object> args = new ArrayList<>(Arrays.asList(user.getEmail(), user.getLogin(), user.getName(),
+                Date.valueOf(user.getBirthday()), user.getId()));
+        if (user.getVersion() != null) {
+            sql += " and version = ?";
+            args.add(user.getVersion());
         }
-
-        jdbcTemplate.batchUpdate(deleteFriendsSql, batchArgsList);
-
-        Set<Integer> friendsAddToDb = new HashSet<>(user.getFriendIds());
-        friendsAddToDb.removeAll(getFriendIdsInDb(user.getId()));
-
-        String insertFriendsSql = "insert into friends (user_id, friend_id) VALUES (?, ?)";
-
-        List<Object[]> batchArgs = new ArrayList<>();
-
-        for (Integer friendId : friendsAddToDb) {
-            Object[] objectArray = {user.getId(), friendId};
-            batchArgs.add(objectArray);
+        if (jdbcTemplate.update(sql, args.toArray()) == 0) {
+            Long currentVersion = getVersionInDb(user.getId());
+            if (currentVersion == null) {
+                throw new UserNotFoundException(String.format("Пользователь с идентификатором %d не найден",
+                        user.getId()));
+            }
+            throw new UserUpdateConflictException(String.format("Пользователь с идентификатором %d был изменён " +
+                    "другим запросом: ожидалась версия %d, текущая версия %d", user.getId(), user.getVersion(),
+                    currentVersion));
         }
+        user.setVersion(user.getVersion() == null ? getVersionInDb(user.getId()) : user.getVersion() + 1);
 
-        jdbcTemplate.batchUpdate(insertFriendsSql, batchArgs);
+        linkTableWriter.replaceLinks(LinkTable.FRIENDS, user.getId(), user.getFriendIds());
 
         log.info("User updated in database: {}", user);
 
@@ -128,58 +189,112 @@ public class UserDbStorage implements UserStorage {
     }
 
     @Override
+    @Transactional
     public void deleteUser(int userId) {
-        getUserById(userId);
-
         String deleteFriendsSql = "delete from friends where user_id = ? OR friend_id = ?";
         jdbcTemplate.update(deleteFriendsSql, userId, userId);
 
+        String updateLikeCountSql = "update films set like_count = like_count - 1 " +
+                "where film_id in (select film_id from film_likes where user_id = ?)";
+        jdbcTemplate.update(updateLikeCountSql, userId);
+        String deleteLikesSql = "delete from film_likes where user_id = ?";
+        jdbcTemplate.update(deleteLikesSql, userId);
+
         String deleteUserSql = "delete from users where user_id = ?";
-        jdbcTemplate.update(deleteUserSql, userId);
+        if (jdbcTemplate.update(deleteUserSql, userId) == 0) {
+            throw new UserNotFoundException(String.format("Пользователь с идентификатором %d не найден", userId));
+        }
 
         log.info("User with id: {} was removed from database", userId);
     }
 
     @Override
-    public void addFriend(int userId, int otherUserId) {
-        getUserById(userId);
-        getUserById(otherUserId);
-
-        if (!getFriendIdsInDb(userId).contains(otherUserId)) {
-            String sql = "insert into friends (user_id, friend_id) VALUES (?, ?)";
-            jdbcTemplate.update(sql, userId, otherUserId);
+    public boolean addFriend(int userId, int otherUserId) {
+        String sql = "insert into friends (user_id, friend_id) select ?, ? where not exists " +
+                "(select 1 from friends where user_id = ? and friend_id = ?)";
+        try {
+            return jdbcTemplate.update(sql, userId, otherUserId, userId, otherUserId) > 0;
+        } catch (DuplicateKeyException e) {
+            return false;
+        } catch (DataIntegrityViolationException e) {
+            checkUsersExist(userId, otherUserId);
+            throw e;
         }
     }
 
     @Override
-    public void removeFriend(int userId, int otherUserId) {
-        getUserById(userId);
-        getUserById(otherUserId);
-
-        if (getFriendIdsInDb(userId).contains(otherUserId)) {
-            String sql = "delete from friends where user_id = ? and friend_id = ?";
-            jdbcTemplate.update(sql, userId, otherUserId);
+    public boolean removeFriend(int userId, int otherUserId) {
+        String sql = "delete from friends where user_id = ? and friend_id = ?";
+        if (jdbcTemplate.update(sql, userId, otherUserId) == 0) {
+            checkUsersExist(userId, otherUserId);
+            return false;
         }
+        return true;
+    }
+
+    @Override
+    public void streamFriendships(Consumer<Friendship> consumer) {
+        String sql = "select user_id, friend_id from friends";
+        jdbcTemplate.query(sql, rs -> {
+            consumer.accept(new Friendship(rs.getInt("user_id"), rs.getInt("friend_id")));
+        });
     }
 
     @Override
     public List<User> getUserFriends(int userId) {
-        String sql = "select u.user_id, u.login, u.name, u.email, u.birthday from users as u " +
+        String sql = "select u.user_id, u.login, u.name, u.email, u.birthday, u.version from users as u " +
                 "join friends as f on u.user_id = f.friend_id " +
                 "where f.user_Id = ?";
 
-        return jdbcTemplate.query(sql, (rs, rowNum) -> makeUser(rs), userId);
+        List<User> friends = jdbcTemplate.query(sql, (rs, rowNum) -> makeUser(rs), userId);
+        loadFriendIds(friends);
+        return friends;
     }
 
-    @Override
-    public List<User> getCommonFriends(int userId, int otherUserId) {
-        getUserById(userId);
-        getUserById(otherUserId);
-        String sql = "select u.user_id, u.login, u.name, u.email, u.birthday from users as u " +
-                "join friends as f on u.user_id = f.friend_id " +
-                "where f.user_Id = ? and f.friend_id in (select friend_id from friends where user_id = ?)";
+    private void checkUsersExist(int userId, int otherUserId) {
+        getUserById(userId, false);
+        getUserById(otherUserId, false);
+    }
 
-        return jdbcTemplate.query(sql, (rs, rowNum) -> makeUser(rs), userId, otherUserId);
+    private void flushStreamBatch(List<User> batch, Consumer<User> consumer) {
+        loadFriendIds(batch);
+        batch.forEach(consumer);
+        batch.clear();
+    }
+
+    private void loadFriendIds(List<User> users) {
+        Map<Integer, User> idToUser = mapUsersById(users);
+        List<Integer> userIds = new ArrayList<>(idToUser.keySet());
+
+        for (int from = 0; from < userIds.size(); from += IN_CLAUSE_CHUNK_SIZE) {
+            List<Integer> chunk = userIds.subList(from, Math.min(from + IN_CLAUSE_CHUNK_SIZE, userIds.size()));
+            attachFriendIds(idToUser, chunk);
+        }
+    }
+
+    private Map<Integer, User> mapUsersById(List<User> users) {
+        Map<Integer, User> idToUser = new LinkedHashMap<>();
+        for (User user : users) {
+            idToUser.put(user.getId(), user);
+        }
+        return idToUser;
+    }
+
+    private void attachFriendIds(Map<Integer, User> idToUser, List<Integer> userIds) {
+        String sql = "select user_id, friend_id from friends";
+        Object[] args = new Object[0];
+
+        if (userIds != null) {
+            sql += " where user_id in (" + String.join(", ", Collections.nCopies(userIds.size(), "?")) + ")";
+            args = userIds.toArray();
+        }
+
+        jdbcTemplate.query(sql, rs -> {
+            User user = idToUser.get(rs.getInt("user_id"));
+            if (user != null) {
+                user.getFriendIds().add(rs.getInt("friend_id"));
+            }
+        }, args);
     }
 
     private User makeUser(ResultSet rs) throws SQLException {
@@ -188,18 +303,45 @@ public class UserDbStorage implements UserStorage {
         String name = rs.getString("name");
         LocalDate birthday = rs.getDate("birthday").toLocalDate();
         String email = rs.getString("email");
-        Set<Integer> friendIds = getFriendIdsInDb(id);
-        return User.builder().id(id).login(login).name(name).email(email).birthday(birthday).friendIds(friendIds)
-                .build();
+        return User.builder().id(id).login(login).name(name).email(email).birthday(birthday)
+                .friendIds(new IntHashSet()).version(rs.getLong("version")).build();
     }
 
-    public Map<String, Object> convertUserToMap(User user) {
-        Map<String, Object> values = new HashMap<>();
-        values.put("email", user.getEmail());
-        values.put("login", user.getLogin());
-        values.put("name", user.getName());
-        values.put("birthday", Date.valueOf(user.getBirthday()));
-        return values;
+    private void insertUsers(List<User> users) {
+        for (User user : users) {
+            replaceNameWithLoginIfNameIsEmpty(user);
+            if (user.getFriendIds() == null) {
+                user.setFriendIds(new IntHashSet());
+            }
+        }
+
+        jdbcTemplate.execute((ConnectionCallback<Void>) connection -> {
+            try (PreparedStatement ps = connection.prepareStatement(INSERT_USER_SQL, new String[]{"user_id"})) {
+                for (User user : users) {
+                    ps.setString(1, user.getEmail());
+                    ps.setString(2, user.getLogin());
+                    ps.setString(3, user.getName());
+                    ps.setDate(4, user.getBirthday() == null ? null : Date.valueOf(user.getBirthday()));
+                    ps.addBatch();
+                }
+                ps.executeBatch();
+                try (ResultSet keys = ps.getGeneratedKeys()) {
+                    for (User user : users) {
+                        keys.next();
+                        user.setId(keys.getInt(1));
+                    }
+                }
+            }
+            return null;
+        });
+
+        List<Object[]> friendArgs = new ArrayList<>();
+        for (User user : users) {
+            user.getFriendIds().forEachInt(friendId -> friendArgs.add(new Object[]{user.getId(), friendId}));
+        }
+        if (!friendArgs.isEmpty()) {
+            jdbcTemplate.batchUpdate("insert into friends (user_id, friend_id) values (?, ?)", friendArgs);
+        }
     }
 
     private void replaceNameWithLoginIfNameIsEmpty(User user) {
@@ -208,10 +350,9 @@ public class UserDbStorage implements UserStorage {
         }
     }
 
-    private Set<Integer> getFriendIdsInDb(int id) {
-        String sql = "select friend_id from friends where user_id = ?";
-        List<Integer> friendIds = jdbcTemplate.query(sql, (rs, rowNum) -> rs.getInt("friend_id"),
-                id);
-        return new HashSet<>(friendIds);
+    private Long getVersionInDb(int userId) {
+        List<Long> versions = jdbcTemplate.queryForList("select version from users where user_id = ?", Long.class,
+                userId);
+        return versions.isEmpty() ? null : versions.get(0);
     }
 }
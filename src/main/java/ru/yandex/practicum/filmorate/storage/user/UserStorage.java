@@ -1,28 +1,42 @@
 package ru.yandex.practicum.filmorate.storage.user;
 
 import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.model.Friendship;
 import ru.yandex.practicum.filmorate.model.User;
 
 import java.util.List;
+import java.util.function.Consumer;
 
 @Component
 public interface UserStorage {
     User getUserById(int id);
 
+    User getUserById(int id, boolean withFriendIds);
+
     List<User> getAllUsers();
 
+    void streamAllUsers(Consumer<User> consumer);
+
+    List<User> getUsers(int afterId, int limit);
+
+    List<User> getUsersByIds(List<Integer> ids);
+
     User addUser(User user);
 
+    List<User> addUsers(List<User> users);
+
     User updateUser(User user);
 
     void deleteUser(int userId);
 
-    void addFriend(int userId, int otherUserId);
+    boolean addFriend(int userId, int otherUserId);
 
-    void removeFriend(int userId, int otherUserId);
+    boolean removeFriend(int userId, int otherUserId);
 
-    List<User> getUserFriends(int userId);
+    void addFriendships(List<Friendship> friendships);
 
-    List<User> getCommonFriends(int userId, int otherUserId);
+    void streamFriendships(Consumer<Friendship> consumer);
+
+    List<User> getUserFriends(int userId);
 
 }
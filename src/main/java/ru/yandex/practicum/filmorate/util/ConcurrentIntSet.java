@@ -0,0 +1,44 @@
+package ru.yandex.practicum.filmorate.util;
+
+import java.util.Arrays;
+import java.util.Collection;
+
+public class ConcurrentIntSet {
+    private final IntHashSet values = new IntHashSet();
+
+    public synchronized boolean add(int value) {
+        return values.add(value);
+    }
+
+    public synchronized boolean remove(int value) {
+        return values.remove(value);
+    }
+
+    public synchronized boolean contains(int value) {
+        return values.contains(value);
+    }
+
+    public synchronized int size() {
+        return values.size();
+    }
+
+    public synchronized void replaceWith(Collection<Integer> newValues) {
+        values.clear();
+        values.addAll(newValues);
+    }
+
+    public synchronized IntHashSet toIntHashSet() {
+        IntHashSet snapshot = new IntHashSet(values.size());
+        snapshot.addAll(values);
+        return snapshot;
+    }
+
+    public int[] toSortedArray() {
+        int[] snapshot;
+        synchronized (this) {
+            snapshot = values.toIntArray();
+        }
+        Arrays.sort(snapshot);
+        return snapshot;
+    }
+}
@@ -0,0 +1,231 @@
+package ru.yandex.practicum.filmorate.util;
+
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+
+import java.util.*;
+import java.util.function.IntConsumer;
+
+@JsonSerialize(using = IntHashSetSerializer.class)
+@JsonDeserialize(using = IntHashSetDeserializer.class)
+public class IntHashSet extends AbstractSet<Integer> {
+    private static final int FREE = 0;
+
+    private int[] keys;
+    private int mask;
+    private int size;
+    private boolean containsFree;
+
+    public IntHashSet() {
+        this(4);
+    }
+
+    public IntHashSet(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(4, expectedSize) * 2 - 1) << 1;
+        keys = new int[capacity];
+        mask = capacity - 1;
+    }
+
+    public IntHashSet(Collection<Integer> values) {
+        this(values.size());
+        addAll(values);
+    }
+
+    public static IntHashSet of(int... values) {
+        IntHashSet set = new IntHashSet(values.length);
+        for (int value : values) {
+            set.add(value);
+        }
+        return set;
+    }
+
+    @Override
+    public boolean add(Integer value) {
+        return add(value.intValue());
+    }
+
+    @Override
+    public boolean remove(Object value) {
+        return value instanceof Integer && remove(((Integer) value).intValue());
+    }
+
+    @Override
+    public boolean contains(Object value) {
+        return value instanceof Integer && contains(((Integer) value).intValue());
+    }
+
+    @Override
+    public boolean addAll(Collection<? extends Integer> values) {
+        if (values instanceof IntHashSet) {
+            boolean[] changed = new boolean[1];
+            ((IntHashSet) values).forEachInt(value -> changed[0] |= add(value));
+            return changed[0];
+        }
+        return super.addAll(values);
+    }
+
+    @Override
+    public Iterator<Integer> iterator() {
+        int[] snapshot = toIntArray();
+        return new PrimitiveIterator.OfInt() {
+            private int index;
+
+            @Override
+            public boolean hasNext() {
+                return index < snapshot.length;
+            }
+
+            @Override
+            public int nextInt() {
+                if (index >= snapshot.length) {
+                    throw new NoSuchElementException();
+                }
+                return snapshot[index++];
+            }
+
+            @Override
+            public void remove() {
+                if (index == 0) {
+                    throw new IllegalStateException();
+                }
+                IntHashSet.this.remove(snapshot[index - 1]);
+            }
+        };
+    }
+
+    public boolean add(int value) {
+        if (value == FREE) {
+            boolean added = !containsFree;
+            containsFree = true;
+            return added;
+        }
+        int slot = slot(value);
+        while (keys[slot] != FREE) {
+            if (keys[slot] == value) {
+                return false;
+            }
+            slot = (slot + 1) & mask;
+        }
+        keys[slot] = value;
+        if (++size * 2 > keys.length) {
+            rehash(keys.length * 2);
+        }
+        return true;
+    }
+
+    public boolean remove(int value) {
+        if (value == FREE) {
+            boolean removed = containsFree;
+            containsFree = false;
+            return removed;
+        }
+        int slot = slot(value);
+        while (keys[slot] != FREE) {
+            if (keys[slot] == value) {
+                shiftKeys(slot);
+                size--;
+                return true;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return false;
+    }
+
+    public boolean contains(int value) {
+        if (value == FREE) {
+            return containsFree;
+        }
+        int slot = slot(value);
+        while (keys[slot] != FREE) {
+            if (keys[slot] == value) {
+                return true;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return false;
+    }
+
+    @Override
+    public int size() {
+        return containsFree ? size + 1 : size;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    @Override
+    public void clear() {
+        Arrays.fill(keys, FREE);
+        size = 0;
+        containsFree = false;
+    }
+
+    public void forEachInt(IntConsumer action) {
+        if (containsFree) {
+            action.accept(FREE);
+        }
+        for (int key : keys) {
+            if (key != FREE) {
+                action.accept(key);
+            }
+        }
+    }
+
+    public int[] toIntArray() {
+        int[] values = new int[size()];
+        int index = 0;
+        if (containsFree) {
+            values[index++] = FREE;
+        }
+        for (int key : keys) {
+            if (key != FREE) {
+                values[index++] = key;
+            }
+        }
+        return values;
+    }
+
+    private int slot(int value) {
+        int hash = value * 0x9E3779B9;
+        return (hash ^ (hash >>> 16)) & mask;
+    }
+
+    private void shiftKeys(int slot) {
+        int last;
+        while (true) {
+            last = slot;
+            slot = (slot + 1) & mask;
+            int key;
+            while (true) {
+                key = keys[slot];
+                if (key == FREE) {
+                    keys[last] = FREE;
+                    return;
+                }
+                int home = slot(key);
+                if (last <= slot ? last >= home || home > slot : last >= home && home > slot) {
+                    break;
+                }
+                slot = (slot + 1) & mask;
+            }
+            keys[last] = key;
+        }
+    }
+
+    private void rehash(int capacity) {
+        int[] oldKeys = keys;
+        keys = new int[capacity];
+        mask = capacity - 1;
+        for (int key : oldKeys) {
+            if (key != FREE) {
+                int slot = slot(key);
+                while (keys[slot] != FREE) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = key;
+            }
+        }
+    }
+}
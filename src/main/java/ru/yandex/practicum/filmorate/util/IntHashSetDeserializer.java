@@ -0,0 +1,31 @@
+package ru.yandex.practicum.filmorate.util;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.deser.std.StdDeserializer;
+
+import java.io.IOException;
+
+public class IntHashSetDeserializer extends StdDeserializer<IntHashSet> {
+
+    public IntHashSetDeserializer() {
+        super(IntHashSet.class);
+    }
+
+    @Override
+    public IntHashSet deserialize(JsonParser parser, DeserializationContext context) throws IOException {
+        if (!parser.isExpectedStartArrayToken()) {
+            return (IntHashSet) context.handleUnexpectedToken(IntHashSet.class, parser);
+        }
+        IntHashSet values = new IntHashSet();
+        JsonToken token;
+        while ((token = parser.nextToken()) != JsonToken.END_ARRAY) {
+            if (token != JsonToken.VALUE_NUMBER_INT) {
+                return (IntHashSet) context.handleUnexpectedToken(IntHashSet.class, parser);
+            }
+            values.add(parser.getIntValue());
+        }
+        return values;
+    }
+}
@@ -0,0 +1,34 @@
+package ru.yandex.practicum.filmorate.util;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+public class IntHashSetSerializer extends StdSerializer<IntHashSet> {
+
+    public IntHashSetSerializer() {
+        super(IntHashSet.class);
+    }
+
+    @Override
+    public void serialize(IntHashSet values, JsonGenerator generator, SerializerProvider provider)
+            throws IOException {
+        generator.writeStartArray(values, values.size());
+        values.forEachInt(value -> {
+            try {
+                generator.writeNumber(value);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        generator.writeEndArray();
+    }
+
+    @Override
+    public boolean isEmpty(SerializerProvider provider, IntHashSet values) {
+        return values.isEmpty();
+    }
+}
@@ -0,0 +1,36 @@
+DELETE FROM film_likes WHERE film_id IS NULL OR user_id IS NULL;
+
+DELETE FROM film_likes AS fl
+WHERE _ROWID_ > (SELECT MIN(d._ROWID_) FROM film_likes AS d
+                 WHERE d.film_id = fl.film_id AND d.user_id = fl.user_id);
+
+ALTER TABLE film_likes ALTER COLUMN film_id SET NOT NULL;
+ALTER TABLE film_likes ALTER COLUMN user_id SET NOT NULL;
+ALTER TABLE film_likes ADD CONSTRAINT IF NOT EXISTS film_likes_pk PRIMARY KEY (film_id, user_id);
+CREATE INDEX IF NOT EXISTS film_likes_user_idx ON film_likes (user_id, film_id);
+
+DELETE FROM film_genres WHERE film_id IS NULL OR genre_id IS NULL;
+
+DELETE FROM film_genres AS fg
+WHERE _ROWID_ > (SELECT MIN(d._ROWID_) FROM film_genres AS d
+                 WHERE d.film_id = fg.film_id AND d.genre_id = fg.genre_id);
+
+ALTER TABLE film_genres ALTER COLUMN film_id SET NOT NULL;
+ALTER TABLE film_genres ALTER COLUMN genre_id SET NOT NULL;
+ALTER TABLE film_genres ADD CONSTRAINT IF NOT EXISTS film_genres_pk PRIMARY KEY (film_id, genre_id);
+CREATE INDEX IF NOT EXISTS film_genres_genre_idx ON film_genres (genre_id, film_id);
+
+DELETE FROM friends WHERE user_id IS NULL OR friend_id IS NULL;
+
+DELETE FROM friends AS f
+WHERE _ROWID_ > (SELECT MIN(d._ROWID_) FROM friends AS d
+                 WHERE d.user_id = f.user_id AND d.friend_id = f.friend_id);
+
+ALTER TABLE friends ALTER COLUMN user_id SET NOT NULL;
+ALTER TABLE friends ALTER COLUMN friend_id SET NOT NULL;
+ALTER TABLE friends ADD CONSTRAINT IF NOT EXISTS friends_pk PRIMARY KEY (user_id, friend_id);
+CREATE INDEX IF NOT EXISTS friends_friend_idx ON friends (friend_id, user_id);
+
+UPDATE films AS f
+SET like_count = (SELECT COUNT(*) FROM film_likes AS fl WHERE fl.film_id = f.film_id)
+WHERE like_count <> (SELECT COUNT(*) FROM film_likes AS fl WHERE fl.film_id = f.film_id);
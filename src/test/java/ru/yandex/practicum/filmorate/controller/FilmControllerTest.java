@@ -6,19 +6,31 @@ import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.test.annotation.DirtiesContext;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
 import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
+import ru.yandex.practicum.filmorate.metrics.QueryBudget;
+import ru.yandex.practicum.filmorate.metrics.QueryStats;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Genre;
 import ru.yandex.practicum.filmorate.model.Rating;
+import ru.yandex.practicum.filmorate.model.User;
 
 import java.time.LocalDate;
+import java.util.List;
+import java.util.TreeSet;
 
+import static org.hamcrest.Matchers.not;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @DirtiesContext(classMode = DirtiesContext.ClassMode.BEFORE_EACH_TEST_METHOD)
@@ -34,6 +46,14 @@ public class FilmControllerTest {
     @Autowired
     private FilmController filmController;
 
+    @Autowired
+    private UserController userController;
+
+    @Value("${filmorate.import.batch-size}")
+    private int importBatchSize;
+
+    private static final int FILMS_QUERY_BUDGET = 4;
+
     private static ObjectMapper mapper;
     private Film film;
     private int addedFilmId;
@@ -222,6 +242,364 @@ public class FilmControllerTest {
                 .andExpect(status().isBadRequest());
     }
 
+    @Test
+    void shouldReturnFilmsPageWithNextCursor() throws Exception {
+        int secondFilmId = filmController.addFilm(film).getId();
+
+        this.mockMvc.perform(MockMvcRequestBuilders
+                        .get("/films")
+                        .param("limit", "1")
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(MockMvcResultMatchers.header().string(FilmController.NEXT_CURSOR_HEADER,
+                        String.valueOf(addedFilmId)))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.length()").value(1))
+                .andExpect(MockMvcResultMatchers.jsonPath("$[0].id").value(addedFilmId));
+
+        this.mockMvc.perform(MockMvcRequestBuilders
+                        .get("/films")
+                        .param("after", String.valueOf(addedFilmId))
+                        .param("limit", "2")
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(MockMvcResultMatchers.header().doesNotExist(FilmController.NEXT_CURSOR_HEADER))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.length()").value(1))
+                .andExpect(MockMvcResultMatchers.jsonPath("$[0].id").value(secondFilmId));
+    }
+
+    @Test
+    void shouldStreamAllFilmsAsJsonArray() throws Exception {
+        filmController.addFilm(film);
+
+        this.mockMvc.perform(MockMvcRequestBuilders
+                        .get("/films")
+                        .param("stream", "true")
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(MockMvcResultMatchers.content().contentTypeCompatibleWith(MediaType.APPLICATION_JSON))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.length()").value(2))
+                .andExpect(MockMvcResultMatchers.jsonPath("$[0].id").value(addedFilmId))
+                .andExpect(MockMvcResultMatchers.jsonPath("$[1].releaseDate").value("1985-08-23"));
+    }
+
+    @Test
+    void shouldReturnErrorWhenPageSizeIsNotPositive() throws Exception {
+        this.mockMvc.perform(MockMvcRequestBuilders
+                        .get("/films")
+                        .param("limit", "0")
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void shouldReturnPopularFilmsOrderedByLikes() throws Exception {
+        Film secondFilm = filmController.addFilm(Film.builder().name("Good cat").description("Description")
+                .releaseDate(LocalDate.of(1990, 1, 1)).duration(90).mpa(new Rating(2, null)).build());
+        User user = userController.addUser(User.builder().login("kenny").email("kenny@yandex.ru")
+                .birthday(LocalDate.of(2000, 1, 1)).build());
+
+        this.mockMvc.perform(MockMvcRequestBuilders
+                        .put("/films/{id}/like/{userId}", secondFilm.getId(), user.getId()))
+                .andExpect(status().isOk());
+
+        this.mockMvc.perform(MockMvcRequestBuilders
+                        .get("/films/popular")
+                        .param("count", "1")
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.length()").value(1))
+                .andExpect(MockMvcResultMatchers.jsonPath("$[0].name").value("Good cat"));
+
+        this.mockMvc.perform(MockMvcRequestBuilders
+                        .delete("/films/{id}/like/{userId}", secondFilm.getId(), user.getId()))
+                .andExpect(status().isOk());
+
+        this.mockMvc.perform(MockMvcRequestBuilders
+                        .get("/films/popular")
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.length()").value(2))
+                .andExpect(MockMvcResultMatchers.jsonPath("$[0].id").value(addedFilmId));
+    }
+
+    @Test
+    void shouldAddFilmsFromJsonArray() throws Exception {
+        Film secondFilm = Film.builder().name("Good cat").description("Description")
+                .releaseDate(LocalDate.of(1990, 1, 1)).duration(90).mpa(new Rating(2, null)).build();
+
+        this.mockMvc.perform(MockMvcRequestBuilders
+                        .post("/films/batch")
+                        .content(asJsonString(List.of(film, secondFilm)))
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.length()").value(2))
+                .andExpect(MockMvcResultMatchers.jsonPath("$[0]").value(addedFilmId + 1))
+                .andExpect(MockMvcResultMatchers.jsonPath("$[1]").value(addedFilmId + 2));
+
+        this.mockMvc.perform(MockMvcRequestBuilders
+                        .get("/films/{id}", addedFilmId + 2)
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.name").value("Good cat"))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.mpa.id").value(2));
+    }
+
+    @Test
+    void shouldAddFilmsFromNdjsonStream() throws Exception {
+        String content = asJsonString(film) + "\n" + asJsonString(film) + "\n";
+
+        this.mockMvc.perform(MockMvcRequestBuilders
+                        .post("/films/batch")
+                        .content(content)
+                        .contentType(FilmController.NDJSON_VALUE)
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.length()").value(2));
+
+        this.mockMvc.perform(MockMvcRequestBuilders
+                        .get("/films")
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.length()").value(3));
+    }
+
+    @Test
+    void shouldReturnErrorWhenBatchContainsInvalidFilm() throws Exception {
+        Film invalidFilm = Film.builder().name("").description("Description")
+                .releaseDate(LocalDate.of(1990, 1, 1)).duration(90).mpa(new Rating(2, null)).build();
+
+        this.mockMvc.perform(MockMvcRequestBuilders
+                        .post("/films/batch")
+                        .content(asJsonString(List.of(film, invalidFilm)))
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isBadRequest());
+
+        this.mockMvc.perform(MockMvcRequestBuilders
+                        .post("/films/batch")
+                        .content(asJsonString(invalidFilm) + "\n")
+                        .contentType(FilmController.NDJSON_VALUE)
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isBadRequest());
+
+        this.mockMvc.perform(MockMvcRequestBuilders
+                        .get("/films")
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.length()").value(1));
+    }
+
+    @Test
+    void shouldReturnAddedIdsWhenNdjsonStreamFailsAfterFirstChunk() throws Exception {
+        int validFilms = importBatchSize + 1;
+        Film invalidFilm = Film.builder().name("").description("Description")
+                .releaseDate(LocalDate.of(1990, 1, 1)).duration(90).mpa(new Rating(2, null)).build();
+        StringBuilder content = new StringBuilder();
+        for (int i = 0; i < validFilms; i++) {
+            content.append(asJsonString(film)).append("\n");
+        }
+        content.append(asJsonString(invalidFilm)).append("\n");
+
+        this.mockMvc.perform(MockMvcRequestBuilders
+                        .post("/films/batch")
+                        .content(content.toString())
+                        .contentType(FilmController.NDJSON_VALUE)
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isBadRequest())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.addedIds.length()").value(importBatchSize))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.addedIds[0]").value(addedFilmId + 1));
+
+        this.mockMvc.perform(MockMvcRequestBuilders
+                        .get("/films")
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.length()").value(importBatchSize + 1));
+    }
+
+    @Test
+    void shouldReturnCommonFilmsOrderedByPopularity() throws Exception {
+        int userId = addUser("kyle");
+        int otherUserId = addUser("stan");
+        int thirdUserId = addUser("kenny");
+        int secondFilmId = filmController.addFilm(film).getId();
+        film.setId(null);
+        int thirdFilmId = filmController.addFilm(film).getId();
+
+        filmController.addLike(addedFilmId, userId);
+        filmController.addLike(addedFilmId, otherUserId);
+        filmController.addLike(secondFilmId, userId);
+        filmController.addLike(secondFilmId, otherUserId);
+        filmController.addLike(secondFilmId, thirdUserId);
+        filmController.addLike(thirdFilmId, userId);
+
+        this.mockMvc.perform(MockMvcRequestBuilders
+                        .get("/users/{id}/films/common/{otherId}", userId, otherUserId)
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.length()").value(2))
+                .andExpect(MockMvcResultMatchers.jsonPath("$[0].id").value(secondFilmId))
+                .andExpect(MockMvcResultMatchers.jsonPath("$[1].id").value(addedFilmId));
+
+        filmController.removeLike(secondFilmId, otherUserId);
+
+        this.mockMvc.perform(MockMvcRequestBuilders
+                        .get("/users/{id}/films/common/{otherId}", userId, otherUserId)
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.length()").value(1))
+                .andExpect(MockMvcResultMatchers.jsonPath("$[0].id").value(addedFilmId));
+    }
+
+    @Test
+    void shouldReturnNotFoundForCommonFilmsOfUnknownUser() throws Exception {
+        int userId = addUser("kyle");
+
+        this.mockMvc.perform(MockMvcRequestBuilders
+                        .get("/users/{id}/films/common/{otherId}", userId, 9999)
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void shouldRecommendFilmsLikedBySimilarUsers() throws Exception {
+        int userId = addUser("kyle");
+        int similarUserId = addUser("stan");
+        int secondFilmId = filmController.addFilm(film).getId();
+        film.setId(null);
+        int thirdFilmId = filmController.addFilm(film).getId();
+
+        filmController.addLike(addedFilmId, userId);
+        filmController.addLike(addedFilmId, similarUserId);
+        filmController.addLike(secondFilmId, similarUserId);
+
+        this.mockMvc.perform(MockMvcRequestBuilders
+                        .get("/users/{id}/recommendations", userId)
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.length()").value(1))
+                .andExpect(MockMvcResultMatchers.jsonPath("$[0].id").value(secondFilmId));
+
+        filmController.addLike(thirdFilmId, similarUserId);
+        filmController.addLike(secondFilmId, userId);
+
+        this.mockMvc.perform(MockMvcRequestBuilders
+                        .get("/users/{id}/recommendations", userId)
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.length()").value(1))
+                .andExpect(MockMvcResultMatchers.jsonPath("$[0].id").value(thirdFilmId));
+
+        this.mockMvc.perform(MockMvcRequestBuilders
+                        .get("/users/{id}/recommendations", 9999)
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void shouldLoadFilmsWithQueryCountIndependentOfRowCount() throws Exception {
+        int userId = addUser("kyle");
+        QueryStats singleFilm = QueryBudget.assertAtMost(FILMS_QUERY_BUDGET, () -> this.mockMvc.perform(
+                        MockMvcRequestBuilders.get("/films").accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.length()").value(1)));
+
+        film.setGenres(new TreeSet<>(List.of(new Genre(1), new Genre(2))));
+        for (int i = 0; i < 20; i++) {
+            int filmId = filmController.addFilm(film).getId();
+            film.setId(null);
+            filmController.addLike(filmId, userId);
+        }
+
+        QueryStats manyFilms = QueryBudget.assertAtMost(FILMS_QUERY_BUDGET, () -> this.mockMvc.perform(
+                        MockMvcRequestBuilders.get("/films").accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.length()").value(21))
+                .andExpect(MockMvcResultMatchers.jsonPath("$[20].genres.length()").value(2)));
+        assertEquals(singleFilm.getRoundTrips(), manyFilms.getRoundTrips(),
+                "Число запросов к базе не должно зависеть от числа фильмов");
+
+        QueryBudget.assertAtMost(FILMS_QUERY_BUDGET, () -> this.mockMvc.perform(
+                        MockMvcRequestBuilders.get("/films/{id}", addedFilmId).accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk()));
+    }
+
+    @Test
+    void shouldReturnConflictWhenUpdatingFilmWithStaleVersion() throws Exception {
+        film.setId(addedFilmId);
+        film.setVersion(0L);
+
+        this.mockMvc.perform(MockMvcRequestBuilders
+                        .put("/films/")
+                        .content(asJsonString(film))
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.version").value(1));
+
+        film.setName("Stale name");
+        this.mockMvc.perform(MockMvcRequestBuilders
+                        .put("/films/")
+                        .content(asJsonString(film))
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isConflict());
+
+        this.mockMvc.perform(MockMvcRequestBuilders.get("/films/{id}", addedFilmId))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.name").value("Bad dog"))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.version").value(1));
+    }
+
+    @Test
+    void shouldAnswerNotModifiedUntilFilmChanges() throws Exception {
+        int userId = addUser("kyle");
+        String filmTag = this.mockMvc.perform(MockMvcRequestBuilders.get("/films/{id}", addedFilmId))
+                .andExpect(status().isOk())
+                .andExpect(header().exists(HttpHeaders.ETAG))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        String popularTag = this.mockMvc.perform(MockMvcRequestBuilders.get("/films/popular"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        QueryBudget.assertAtMost(0, () -> {
+            this.mockMvc.perform(MockMvcRequestBuilders.get("/films/{id}", addedFilmId)
+                            .header(HttpHeaders.IF_NONE_MATCH, filmTag))
+                    .andExpect(status().isNotModified())
+                    .andExpect(content().string(""));
+            this.mockMvc.perform(MockMvcRequestBuilders.get("/films/popular")
+                            .header(HttpHeaders.IF_NONE_MATCH, popularTag))
+                    .andExpect(status().isNotModified());
+        });
+
+        filmController.addLike(addedFilmId, userId);
+
+        this.mockMvc.perform(MockMvcRequestBuilders.get("/films/{id}", addedFilmId)
+                        .header(HttpHeaders.IF_NONE_MATCH, filmTag))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, not(filmTag)))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.likes[0]").value(userId));
+        this.mockMvc.perform(MockMvcRequestBuilders.get("/films/popular")
+                        .header(HttpHeaders.IF_NONE_MATCH, popularTag))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    void shouldAnswerNotModifiedForGenresAndRatings() throws Exception {
+        for (String url : List.of("/genres", "/genres/1", "/mpa", "/mpa/1")) {
+            String tag = this.mockMvc.perform(MockMvcRequestBuilders.get(url))
+                    .andExpect(status().isOk())
+                    .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+            this.mockMvc.perform(MockMvcRequestBuilders.get(url).header(HttpHeaders.IF_NONE_MATCH, tag))
+                    .andExpect(status().isNotModified());
+        }
+    }
+
+    private int addUser(String login) {
+        return userController.addUser(User.builder().email(login + "@yandex.ru").login(login)
+                .birthday(LocalDate.of(1986, 7, 3)).build()).getId();
+    }
+
     public String asJsonString(final Object obj) {
         try {
             return mapper.writeValueAsString(obj);
@@ -9,15 +9,19 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.test.annotation.DirtiesContext;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
 import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
+import ru.yandex.practicum.filmorate.metrics.QueryBudget;
+import ru.yandex.practicum.filmorate.metrics.QueryStats;
 import ru.yandex.practicum.filmorate.model.User;
 
 import java.time.LocalDate;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @DirtiesContext(classMode = DirtiesContext.ClassMode.BEFORE_EACH_TEST_METHOD)
@@ -33,6 +37,8 @@ class UserControllerTest {
     @Autowired
     private UserController userController;
 
+    private static final int USERS_QUERY_BUDGET = 2;
+
     private static ObjectMapper mapper;
     private User user;
 
@@ -257,6 +263,198 @@ class UserControllerTest {
                 .andExpect(status().isBadRequest());
     }
 
+    @Test
+    void shouldStreamAllUsersAsJsonArray() throws Exception {
+        this.mockMvc.perform(MockMvcRequestBuilders
+                        .get("/users")
+                        .param("stream", "true")
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.length()").value(1))
+                .andExpect(MockMvcResultMatchers.jsonPath("$[0].id").value(addedUserId))
+                .andExpect(MockMvcResultMatchers.jsonPath("$[0].login").value("Cartman"));
+    }
+
+    @Test
+    void shouldImportUsersWithFriendships() throws Exception {
+        String content = "{\"users\": [" +
+                "{\"externalId\": \"kyle\", \"email\": \"kyle@yandex.ru\", \"login\": \"Kyle\", " +
+                "\"birthday\": \"1986-07-03\"}, " +
+                "{\"externalId\": \"stan\", \"email\": \"stan@yandex.ru\", \"login\": \"Stan\", " +
+                "\"birthday\": \"1986-07-03\"}], " +
+                "\"friendships\": [{\"userExternalId\": \"kyle\", \"friendExternalId\": \"stan\"}]}";
+
+        this.mockMvc.perform(MockMvcRequestBuilders
+                        .post("/users/import")
+                        .content(content)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.kyle").value(addedUserId + 1))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.stan").value(addedUserId + 2));
+
+        this.mockMvc.perform(MockMvcRequestBuilders
+                        .get("/users/{id}/friends", addedUserId + 1)
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.length()").value(1))
+                .andExpect(MockMvcResultMatchers.jsonPath("$[0].login").value("Stan"));
+    }
+
+    @Test
+    void shouldIgnoreDatabaseIdsOfImportedUsers() throws Exception {
+        String content = "{\"users\": [{\"externalId\": \"kyle\", \"id\": 999, \"version\": 5, " +
+                "\"friendIds\": [999], \"email\": \"kyle@yandex.ru\", \"login\": \"Kyle\", " +
+                "\"birthday\": \"1986-07-03\"}]}";
+
+        this.mockMvc.perform(MockMvcRequestBuilders
+                        .post("/users/import")
+                        .content(content)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.kyle").value(addedUserId + 1));
+
+        this.mockMvc.perform(MockMvcRequestBuilders
+                        .get("/users/{id}/friends", addedUserId + 1)
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.length()").value(0));
+    }
+
+    @Test
+    void shouldReturnErrorWhenImportedUserIsInvalid() throws Exception {
+        String content = "{\"users\": [{\"externalId\": \"kyle\", \"email\": \"kyle\", " +
+                "\"login\": \"Kyle\", \"birthday\": \"1986-07-03\"}]}";
+
+        this.mockMvc.perform(MockMvcRequestBuilders
+                        .post("/users/import")
+                        .content(content)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void shouldReturnCommonFriendsAfterFriendUpdates() throws Exception {
+        int otherUserId = addUser("Kyle");
+        int firstFriendId = addUser("Stan");
+        int secondFriendId = addUser("Kenny");
+
+        userController.addFriend(addedUserId, firstFriendId);
+        userController.addFriend(addedUserId, secondFriendId);
+        userController.addFriend(otherUserId, firstFriendId);
+        userController.addFriend(otherUserId, secondFriendId);
+        userController.removeFriend(otherUserId, secondFriendId);
+
+        this.mockMvc.perform(MockMvcRequestBuilders
+                        .get("/users/{id}/friends/common/{otherId}", addedUserId, otherUserId)
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.length()").value(1))
+                .andExpect(MockMvcResultMatchers.jsonPath("$[0].id").value(firstFriendId))
+                .andExpect(MockMvcResultMatchers.jsonPath("$[0].login").value("Stan"));
+
+        userController.removeUser(firstFriendId);
+
+        this.mockMvc.perform(MockMvcRequestBuilders
+                        .get("/users/{id}/friends/common/{otherId}", addedUserId, otherUserId)
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.length()").value(0));
+    }
+
+    @Test
+    void shouldSuggestFriendsOfFriendsByMutualFriendCount() throws Exception {
+        int firstFriendId = addUser("Kyle");
+        int secondFriendId = addUser("Stan");
+        int popularCandidateId = addUser("Kenny");
+        int candidateId = addUser("Butters");
+
+        userController.addFriend(addedUserId, firstFriendId);
+        userController.addFriend(addedUserId, secondFriendId);
+        userController.addFriend(firstFriendId, candidateId);
+        userController.addFriend(firstFriendId, popularCandidateId);
+        userController.addFriend(secondFriendId, popularCandidateId);
+        userController.addFriend(secondFriendId, addedUserId);
+
+        this.mockMvc.perform(MockMvcRequestBuilders
+                        .get("/users/{id}/friends/suggestions", addedUserId)
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.length()").value(2))
+                .andExpect(MockMvcResultMatchers.jsonPath("$[0].id").value(popularCandidateId))
+                .andExpect(MockMvcResultMatchers.jsonPath("$[1].id").value(candidateId));
+
+        this.mockMvc.perform(MockMvcRequestBuilders
+                        .get("/users/{id}/friends/suggestions", addedUserId)
+                        .param("limit", "1")
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.length()").value(1))
+                .andExpect(MockMvcResultMatchers.jsonPath("$[0].login").value("Kenny"));
+
+        this.mockMvc.perform(MockMvcRequestBuilders
+                        .get("/users/{id}/friends/suggestions", addedUserId)
+                        .param("limit", "0")
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isBadRequest());
+
+        this.mockMvc.perform(MockMvcRequestBuilders
+                        .get("/users/{id}/friends/suggestions", 9999)
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void shouldLoadUsersAndFriendsWithQueryCountIndependentOfRowCount() throws Exception {
+        QueryStats singleUser = QueryBudget.assertAtMost(USERS_QUERY_BUDGET, () -> this.mockMvc.perform(
+                        MockMvcRequestBuilders.get("/users").accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.length()").value(1)));
+
+        for (int i = 0; i < 20; i++) {
+            userController.addFriend(addedUserId, addUser("Friend" + i));
+        }
+
+        QueryStats manyUsers = QueryBudget.assertAtMost(USERS_QUERY_BUDGET, () -> this.mockMvc.perform(
+                        MockMvcRequestBuilders.get("/users").accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.length()").value(21)));
+        assertEquals(singleUser.getRoundTrips(), manyUsers.getRoundTrips(),
+                "Число запросов к базе не должно зависеть от числа пользователей");
+
+        QueryBudget.assertAtMost(USERS_QUERY_BUDGET, () -> this.mockMvc.perform(
+                        MockMvcRequestBuilders.get("/users/{id}/friends", addedUserId)
+                                .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.length()").value(20)));
+    }
+
+    @Test
+    void shouldAnswerNotModifiedUntilUserChanges() throws Exception {
+        int friendId = addUser("Kyle");
+        String tag = this.mockMvc.perform(MockMvcRequestBuilders.get("/users/{id}", addedUserId))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        this.mockMvc.perform(MockMvcRequestBuilders.get("/users/{id}", addedUserId)
+                        .header(HttpHeaders.IF_NONE_MATCH, tag))
+                .andExpect(status().isNotModified());
+
+        userController.addFriend(addedUserId, friendId);
+
+        this.mockMvc.perform(MockMvcRequestBuilders.get("/users/{id}", addedUserId)
+                        .header(HttpHeaders.IF_NONE_MATCH, tag))
+                .andExpect(status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.friendIds[0]").value(friendId));
+    }
+
+    private int addUser(String login) {
+        return userController.addUser(User.builder().email(login.toLowerCase() + "@yandex.ru").login(login)
+                .birthday(LocalDate.of(1986, 7, 3)).build()).getId();
+    }
+
     public String asJsonString(final Object obj) {
         try {
             return mapper.writeValueAsString(obj);
@@ -0,0 +1,27 @@
+package ru.yandex.practicum.filmorate.metrics;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public final class QueryBudget {
+
+    private QueryBudget() {
+    }
+
+    public static QueryStats assertAtMost(int maxRoundTrips, Action action) throws Exception {
+        QueryStats stats = QueryCounter.start();
+        try {
+            action.run();
+        } finally {
+            QueryCounter.stop(stats);
+        }
+        assertTrue(stats.getRoundTrips() <= maxRoundTrips, String.format(
+                "Превышен бюджет запросов к базе: %d из %d, %s", stats.getRoundTrips(), maxRoundTrips,
+                stats.getShapeToExecutions()));
+        return stats;
+    }
+
+    @FunctionalInterface
+    public interface Action {
+        void run() throws Exception;
+    }
+}
@@ -0,0 +1,39 @@
+package ru.yandex.practicum.filmorate.metrics;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class QueryCounterTest {
+
+    @Test
+    void shouldNormalizeStatementShape() {
+        assertEquals("select * from films where film_id in (?) and name = ?",
+                QueryCounter.shapeOf("SELECT *\n  FROM films WHERE film_id IN (?, ?, ?) AND name = 'It''s'"),
+                "Неверная форма выражения");
+        assertEquals("select * from films limit ?", QueryCounter.shapeOf("select * from films limit 10"),
+                "Числовые литералы должны заменяться параметром");
+    }
+
+    @Test
+    void shouldCountNestedScopes() {
+        QueryStats outer = QueryCounter.start();
+        QueryCounter.record("select * from films where film_id = 1", 1);
+        QueryStats inner = QueryCounter.start();
+        QueryCounter.record("select * from films where film_id = 2", 1);
+        QueryCounter.recordBatch(List.of("insert into film_likes values (?, ?)",
+                "insert into film_likes values (?, ?)"));
+        QueryCounter.stop(inner);
+        QueryCounter.stop(outer);
+        QueryCounter.record("select 1", 1);
+
+        assertEquals(2, inner.getRoundTrips(), "Неверное число обращений во вложенной области");
+        assertEquals(3, inner.getStatements(), "Пакет должен учитываться как несколько выражений");
+        assertEquals(3, outer.getRoundTrips(), "Внешняя область должна учитывать вложенные");
+        assertEquals(Map.entry("select * from films where film_id = ?", 2), outer.getMostRepeatedShape(),
+                "Неверное самое частое выражение");
+    }
+}
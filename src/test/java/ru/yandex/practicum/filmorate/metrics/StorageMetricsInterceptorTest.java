@@ -0,0 +1,79 @@
+package ru.yandex.practicum.filmorate.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.RequiredArgsConstructor;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.metrics.AutoConfigureMetrics;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+import ru.yandex.practicum.filmorate.exceptions.FilmNotFoundException;
+import ru.yandex.practicum.filmorate.storage.film.FilmDbStorage;
+import ru.yandex.practicum.filmorate.storage.genre.GenreStorage;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureTestDatabase
+@AutoConfigureMockMvc
+@AutoConfigureMetrics
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+public class StorageMetricsInterceptorTest {
+    private final FilmDbStorage filmStorage;
+    private final GenreStorage genreStorage;
+    private final MeterRegistry meterRegistry;
+    private final MockMvc mockMvc;
+
+    @Test
+    void shouldTimeStorageCallsAndRecordReturnedRows() {
+        filmStorage.getAllFilms();
+        filmStorage.getAllFilms();
+        genreStorage.getAllgenres();
+
+        Timer timer = meterRegistry.get(StorageMetricsInterceptor.CALLS_METRIC)
+                .tags("storage", "FilmStorage", "implementation", "FilmDbStorage", "method", "getAllFilms")
+                .timer();
+        assertEquals(2, timer.count(), "Неверное количество замеров времени");
+        assertEquals(0, meterRegistry.get(StorageMetricsInterceptor.ROWS_METRIC)
+                .tags("implementation", "FilmDbStorage", "method", "getAllFilms")
+                .summary().totalAmount(), "Неверное количество возвращённых строк");
+        assertEquals(6, meterRegistry.get(StorageMetricsInterceptor.ROWS_METRIC)
+                .tags("storage", "GenreStorage", "implementation", "CachedGenreStorage", "method", "getAllgenres")
+                .summary().totalAmount(), "Неверное количество возвращённых жанров");
+    }
+
+    @Test
+    void shouldCountStorageErrorsByException() {
+        assertThrows(FilmNotFoundException.class, () -> filmStorage.getFilmById(9999));
+
+        assertEquals(1, meterRegistry.get(StorageMetricsInterceptor.ERRORS_METRIC)
+                .tags("implementation", "FilmDbStorage", "method", "getFilmById",
+                        "exception", "FilmNotFoundException")
+                .counter().count(), "Ошибка хранилища не учтена");
+        assertEquals(1, meterRegistry.get(StorageMetricsInterceptor.CALLS_METRIC)
+                .tags("implementation", "FilmDbStorage", "method", "getFilmById")
+                .timer().count(), "Вызов с ошибкой не учтён в таймере");
+    }
+
+    @Test
+    void shouldExposeStorageMetricsInPrometheusFormat() throws Exception {
+        filmStorage.getAllFilms();
+        genreStorage.getGenreById(1);
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/actuator/prometheus"))
+                .andExpect(status().isOk())
+                .andExpect(content().string(containsString("filmorate_storage_calls_seconds_count{" +
+                        "implementation=\"FilmDbStorage\",method=\"getAllFilms\",storage=\"FilmStorage\",}")))
+                .andExpect(content().string(containsString("filmorate_storage_cache_requests_total{" +
+                        "cache=\"genres\",result=\"hit\",}")));
+    }
+}
@@ -0,0 +1,96 @@
+package ru.yandex.practicum.filmorate.service;
+
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.model.FilmLike;
+import ru.yandex.practicum.filmorate.model.Friendship;
+import ru.yandex.practicum.filmorate.util.IntHashSet;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+
+public class AdjacencyIndexTest {
+
+    @Test
+    void shouldIntersectFriendsLikeHashSetUnderRandomOperations() {
+        Random random = new Random(42);
+        AdjacencyIndex index = new AdjacencyIndex();
+        Map<Integer, Set<Integer>> expected = new HashMap<>();
+        for (int i = 0; i < 100_000; i++) {
+            int userId = random.nextInt(50) + 1;
+            int friendId = random.nextInt(random.nextBoolean() ? 200 : 100_000) + 1;
+            if (random.nextInt(3) == 0) {
+                index.removeFriend(userId, friendId);
+                expected.computeIfAbsent(userId, id -> new HashSet<>()).remove(friendId);
+            } else {
+                index.addFriend(userId, friendId);
+                expected.computeIfAbsent(userId, id -> new HashSet<>()).add(friendId);
+            }
+        }
+
+        for (int userId = 1; userId <= 50; userId++) {
+            for (int otherUserId = 1; otherUserId <= 50; otherUserId++) {
+                Set<Integer> common = new HashSet<>(expected.getOrDefault(userId, Set.of()));
+                common.retainAll(expected.getOrDefault(otherUserId, Set.of()));
+                assertArrayEquals(common.stream().mapToInt(Integer::intValue).sorted().toArray(),
+                        index.getCommonFriendIds(userId, otherUserId),
+                        "Неверные общие друзья пользователей " + userId + " и " + otherUserId);
+            }
+        }
+    }
+
+    @Test
+    void shouldRebuildAndUpdateFriendRows() {
+        AdjacencyIndex index = new AdjacencyIndex();
+        List<Friendship> friendships = List.of(new Friendship(1, 3), new Friendship(1, 4),
+                new Friendship(2, 3), new Friendship(2, 4), new Friendship(2, 5));
+        index.rebuildFriends(friendships::forEach);
+
+        assertArrayEquals(new int[]{3, 4}, index.getCommonFriendIds(1, 2), "Неверные общие друзья");
+
+        index.setFriends(1, IntHashSet.of(4, 5));
+        assertArrayEquals(new int[]{4, 5}, index.getCommonFriendIds(1, 2), "Неверные общие друзья");
+
+        index.addFriend(3, 5);
+        index.addFriend(4, 5);
+        assertArrayEquals(new int[]{5}, index.getCommonFriendIds(3, 4), "Неверные общие друзья");
+
+        index.removeUser(2);
+        assertArrayEquals(new int[0], index.getCommonFriendIds(1, 2), "Неверные общие друзья");
+
+        index.removeUser(5);
+        assertArrayEquals(new int[]{4}, index.getCommonFriendIds(1, 1), "Удалённый пользователь остался в друзьях");
+        assertArrayEquals(new int[0], index.getCommonFriendIds(3, 4),
+                "Удалённый пользователь остался в общих друзьях");
+    }
+
+    @Test
+    void shouldKeepLikedFilmsConsistentWithFilmLikers() {
+        AdjacencyIndex index = new AdjacencyIndex();
+        List<FilmLike> likes = List.of(new FilmLike(10, 1), new FilmLike(10, 2),
+                new FilmLike(20, 1), new FilmLike(20, 2), new FilmLike(30, 1));
+        index.rebuildLikes(likes::forEach);
+
+        assertArrayEquals(new int[]{10, 20}, index.getCommonFilmIds(1, 2), "Неверные общие фильмы");
+
+        index.addLike(30, 2);
+        index.removeLike(10, 2);
+        assertArrayEquals(new int[]{20, 30}, index.getCommonFilmIds(1, 2), "Неверные общие фильмы");
+
+        assertArrayEquals(new int[]{1, 2}, index.setFilmLikes(20, IntHashSet.of(1, 3)),
+                "Неверные прежние лайкнувшие пользователи");
+        assertArrayEquals(new int[]{30}, index.getCommonFilmIds(1, 2), "Неверные общие фильмы");
+        assertArrayEquals(new int[]{20}, index.getCommonFilmIds(1, 3), "Неверные общие фильмы");
+
+        assertArrayEquals(new int[]{1, 2}, index.removeFilm(30), "Неверные лайкнувшие пользователи");
+        assertArrayEquals(new int[0], index.getCommonFilmIds(1, 2), "Неверные общие фильмы");
+
+        index.removeUser(1);
+        assertArrayEquals(new int[0], index.getCommonFilmIds(1, 3), "Неверные общие фильмы");
+    }
+}
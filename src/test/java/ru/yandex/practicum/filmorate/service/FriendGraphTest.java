@@ -0,0 +1,107 @@
+package ru.yandex.practicum.filmorate.service;
+
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.model.Friendship;
+import ru.yandex.practicum.filmorate.util.IntHashSet;
+
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class FriendGraphTest {
+    private static final int UNLIMITED_WORK = Integer.MAX_VALUE;
+
+    @Test
+    void shouldRankSuggestionsByMutualFriends() {
+        FriendGraph graph = new FriendGraph();
+        List<Friendship> friendships = List.of(new Friendship(1, 2), new Friendship(1, 3),
+                new Friendship(2, 4), new Friendship(3, 4), new Friendship(2, 5),
+                new Friendship(3, 1), new Friendship(2, 3), new Friendship(3, 6));
+        graph.rebuild(friendships::forEach);
+
+        assertArrayEquals(new int[]{4, 5, 6}, graph.getFriendSuggestions(1, 10, UNLIMITED_WORK),
+                "Неверный порядок рекомендаций");
+        assertArrayEquals(new int[]{4}, graph.getFriendSuggestions(1, 1, UNLIMITED_WORK),
+                "Неверное количество рекомендаций");
+
+        graph.removeFriend(3, 4);
+        graph.addFriend(3, 5);
+        graph.addFriend(1, 6);
+        assertArrayEquals(new int[]{5, 4}, graph.getFriendSuggestions(1, 10, UNLIMITED_WORK),
+                "Рекомендации не учитывают изменения дружбы");
+
+        graph.removeUser(5);
+        assertArrayEquals(new int[]{4}, graph.getFriendSuggestions(1, 10, UNLIMITED_WORK),
+                "Удалённый пользователь попал в рекомендации");
+    }
+
+    @Test
+    void shouldStopCountingWhenWorkBudgetIsSpent() {
+        FriendGraph graph = new FriendGraph();
+        graph.setFriends(1, IntHashSet.of(2, 3));
+        graph.setFriends(2, IntHashSet.of(10, 11, 12));
+        graph.setFriends(3, IntHashSet.of(20, 21, 22));
+
+        assertEquals(6, graph.getFriendSuggestions(1, 10, UNLIMITED_WORK).length,
+                "Неверное количество рекомендаций");
+        assertEquals(3, graph.getFriendSuggestions(1, 10, 3).length,
+                "Бюджет работы не ограничил обход");
+    }
+
+    @Test
+    void shouldMatchNaiveCountingUnderRandomOperations() {
+        Random random = new Random(42);
+        FriendGraph graph = new FriendGraph();
+        Map<Integer, Set<Integer>> expected = new HashMap<>();
+        int userCount = 300;
+        for (int i = 0; i < 50_000; i++) {
+            int userId = random.nextInt(userCount) + 1;
+            int friendId = random.nextInt(userCount) + 1;
+            if (random.nextInt(3) == 0) {
+                graph.removeFriend(userId, friendId);
+                expected.computeIfAbsent(userId, id -> new HashSet<>()).remove(friendId);
+            } else {
+                graph.addFriend(userId, friendId);
+                expected.computeIfAbsent(userId, id -> new HashSet<>()).add(friendId);
+            }
+
+            if (i % 5_000 == 0) {
+                int checkedUserId = random.nextInt(userCount) + 1;
+                assertArrayEquals(naiveSuggestions(expected, checkedUserId, 20),
+                        graph.getFriendSuggestions(checkedUserId, 20, UNLIMITED_WORK),
+                        "Неверные рекомендации для пользователя " + checkedUserId);
+            }
+        }
+
+        for (int userId = 1; userId <= userCount; userId++) {
+            assertArrayEquals(naiveSuggestions(expected, userId, 20),
+                    graph.getFriendSuggestions(userId, 20, UNLIMITED_WORK),
+                    "Неверные рекомендации для пользователя " + userId);
+        }
+    }
+
+    private int[] naiveSuggestions(Map<Integer, Set<Integer>> friends, int userId, int limit) {
+        Set<Integer> userFriends = friends.getOrDefault(userId, Set.of());
+        Map<Integer, Integer> counts = new HashMap<>();
+        for (int friendId : userFriends) {
+            for (int candidateId : friends.getOrDefault(friendId, Set.of())) {
+                if (candidateId != userId && !userFriends.contains(candidateId)) {
+                    counts.merge(candidateId, 1, Integer::sum);
+                }
+            }
+        }
+        return counts.entrySet().stream()
+                .sorted(Comparator.comparing(Map.Entry<Integer, Integer>::getValue).reversed()
+                        .thenComparing(Map.Entry::getKey))
+                .limit(limit)
+                .mapToInt(Map.Entry::getKey)
+                .toArray();
+    }
+}
@@ -0,0 +1,127 @@
+package ru.yandex.practicum.filmorate.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.model.FilmLike;
+import ru.yandex.practicum.filmorate.util.IntHashSet;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+
+public class LikeMatrixTest {
+    private final LikeMatrix likeMatrix = new LikeMatrix();
+
+    @AfterEach
+    void afterEach() {
+        likeMatrix.shutdown();
+    }
+
+    @Test
+    void shouldRecommendFilmsOfNearestNeighbours() {
+        List<FilmLike> likes = List.of(new FilmLike(1, 1), new FilmLike(2, 1), new FilmLike(3, 1),
+                new FilmLike(1, 2), new FilmLike(2, 2), new FilmLike(3, 2), new FilmLike(4, 2),
+                new FilmLike(1, 3), new FilmLike(5, 3), new FilmLike(6, 3),
+                new FilmLike(7, 4));
+        likeMatrix.rebuild(likes::forEach);
+
+        assertArrayEquals(new int[]{4, 5, 6}, likeMatrix.recommendFilms(1, 10, 10),
+                "Неверный порядок рекомендаций");
+        assertArrayEquals(new int[]{4}, likeMatrix.recommendFilms(1, 1, 10),
+                "Рекомендации должны браться только у ближайших соседей");
+        assertArrayEquals(new int[0], likeMatrix.recommendFilms(4, 10, 10),
+                "Пользователь без пересечений не должен получать рекомендации");
+
+        likeMatrix.addLike(4, 1);
+        likeMatrix.removeLike(1, 2);
+        assertArrayEquals(new int[]{5, 6}, likeMatrix.recommendFilms(1, 10, 10),
+                "Рекомендации не учитывают изменения лайков");
+
+        assertArrayEquals(new int[]{2}, likeMatrix.setFilmLikes(5, new int[]{3}, IntHashSet.of(2, 3)),
+                "Неверный список затронутых пользователей");
+        assertArrayEquals(new int[]{3}, likeMatrix.removeFilm(6, new int[]{3}), "Неверный список затронутых пользователей");
+        likeMatrix.removeUser(3);
+        assertArrayEquals(new int[]{5}, likeMatrix.recommendFilms(1, 10, 10),
+                "Рекомендации не учитывают удаление фильмов и пользователей");
+    }
+
+    @Test
+    void shouldMatchNaiveSearchUnderRandomOperations() {
+        Random random = new Random(42);
+        Map<Integer, Set<Integer>> expected = new HashMap<>();
+        int userCount = 10_000;
+        int filmCount = 500;
+        for (int i = 0; i < 100_000; i++) {
+            int userId = random.nextInt(userCount) + 1;
+            int filmId = random.nextInt(filmCount) + 1;
+            if (random.nextInt(1000) == 0) {
+                IntHashSet likerIds = new IntHashSet();
+                for (int j = 0; j < 20; j++) {
+                    likerIds.add(random.nextInt(userCount) + 1);
+                }
+                int[] previousLikerIds = expected.entrySet().stream()
+                        .filter(entry -> entry.getValue().contains(filmId))
+                        .mapToInt(Map.Entry::getKey)
+                        .toArray();
+                Set<Integer> changedUserIds = new HashSet<>();
+                expected.forEach((otherUserId, filmIds) -> {
+                    if (!likerIds.contains((int) otherUserId) && filmIds.remove(filmId)) {
+                        changedUserIds.add(otherUserId);
+                    }
+                });
+                likerIds.forEachInt(likerId -> {
+                    if (expected.computeIfAbsent(likerId, id -> new HashSet<>()).add(filmId)) {
+                        changedUserIds.add(likerId);
+                    }
+                });
+                int[] actualChangedUserIds = likeMatrix.setFilmLikes(filmId, previousLikerIds, likerIds);
+                Arrays.sort(actualChangedUserIds);
+                assertArrayEquals(changedUserIds.stream().mapToInt(Integer::intValue).sorted().toArray(),
+                        actualChangedUserIds, "Неверный список затронутых пользователей");
+            } else if (random.nextInt(4) == 0) {
+                likeMatrix.removeLike(filmId, userId);
+                expected.computeIfAbsent(userId, id -> new HashSet<>()).remove(filmId);
+            } else {
+                likeMatrix.addLike(filmId, userId);
+                expected.computeIfAbsent(userId, id -> new HashSet<>()).add(filmId);
+            }
+        }
+
+        for (int i = 0; i < 50; i++) {
+            int userId = random.nextInt(userCount) + 1;
+            assertArrayEquals(naiveRecommendations(expected, userId, 20, 10),
+                    likeMatrix.recommendFilms(userId, 20, 10),
+                    "Неверные рекомендации для пользователя " + userId);
+        }
+    }
+
+    private int[] naiveRecommendations(Map<Integer, Set<Integer>> likes, int userId, int neighbourCount,
+                                       int limit) {
+        Set<Integer> filmIds = likes.getOrDefault(userId, Set.of());
+        List<int[]> neighbours = new ArrayList<>();
+        likes.forEach((otherUserId, otherFilmIds) -> {
+            Set<Integer> common = new HashSet<>(otherFilmIds);
+            common.retainAll(filmIds);
+            if (!otherUserId.equals(userId) && !common.isEmpty() && common.size() < otherFilmIds.size()) {
+                neighbours.add(new int[]{otherUserId, common.size()});
+            }
+        });
+        neighbours.sort(Comparator.comparingInt((int[] neighbour) -> -neighbour[1])
+                .thenComparingInt(neighbour -> neighbour[0]));
+
+        Map<Integer, Integer> scores = new HashMap<>();
+        for (int[] neighbour : neighbours.subList(0, Math.min(neighbourCount, neighbours.size()))) {
+            for (int filmId : likes.get(neighbour[0])) {
+                if (!filmIds.contains(filmId)) {
+                    scores.merge(filmId, neighbour[1], Integer::sum);
+                }
+            }
+        }
+        return scores.entrySet().stream()
+                .sorted(Map.Entry.<Integer, Integer>comparingByValue().reversed()
+                        .thenComparing(Map.Entry.comparingByKey()))
+                .limit(limit)
+                .mapToInt(Map.Entry::getKey)
+                .toArray();
+    }
+}
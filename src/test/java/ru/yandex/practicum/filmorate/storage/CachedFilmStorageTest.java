@@ -0,0 +1,85 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import lombok.RequiredArgsConstructor;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.annotation.DirtiesContext;
+import ru.yandex.practicum.filmorate.exceptions.FilmNotFoundException;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Rating;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.film.CachedFilmStorage;
+import ru.yandex.practicum.filmorate.storage.user.UserDbStorage;
+import ru.yandex.practicum.filmorate.util.IntHashSet;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+@AutoConfigureTestDatabase
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
+public class CachedFilmStorageTest {
+    private final CachedFilmStorage filmStorage;
+    private final UserDbStorage userStorage;
+
+    private int filmId;
+    private int userId;
+
+    @BeforeEach
+    void beforeEach() {
+        userId = userStorage.addUser(User.builder().login("login1").email("user1@yandex.ru")
+                .birthday(LocalDate.of(2000, 3, 20)).build()).getId();
+        filmId = filmStorage.addFilm(Film.builder().name("Film 1").description("description 1").duration(100)
+                .releaseDate(LocalDate.of(2010, 3, 20)).mpa(new Rating(1)).build()).getId();
+    }
+
+    @Test
+    void shouldServeRepeatedReadsFromCacheWithoutSharingInstances() {
+        Film film = filmStorage.getFilmById(filmId);
+        long hitsBefore = filmStorage.getStats().hitCount();
+        film.addLike(userId);
+        Film cachedFilm = filmStorage.getFilmById(filmId);
+
+        assertAll("Проверка чтения фильма из кэша",
+                () -> assertEquals(hitsBefore + 1, filmStorage.getStats().hitCount(), "Фильм не найден в кэше"),
+                () -> assertNotSame(film, cachedFilm, "Кэш не должен отдавать общий экземпляр"),
+                () -> assertTrue(cachedFilm.getLikes().isEmpty(), "Изменение копии попало в кэш"));
+    }
+
+    @Test
+    void shouldPatchCachedFilmOnLikeChanges() {
+        filmStorage.getFilmById(filmId);
+        long missesBefore = filmStorage.getStats().missCount();
+
+        filmStorage.addLike(filmId, userId);
+        assertEquals(IntHashSet.of(userId), filmStorage.getFilmById(filmId).getLikes(), "Лайк не попал в кэш");
+        assertEquals(2, filmStorage.getWeightedSize(), "Вес записи должен учитывать лайки");
+
+        filmStorage.removeLike(filmId, userId);
+        assertTrue(filmStorage.getFilmById(filmId).getLikes().isEmpty(), "Удаление лайка не попало в кэш");
+
+        filmStorage.addLike(filmId, userId);
+        filmStorage.removeUserLikes(userId, new int[]{filmId});
+        assertTrue(filmStorage.getFilmsByIds(List.of(filmId)).get(0).getLikes().isEmpty(),
+                "Лайки удалённого пользователя остались в кэше");
+        assertEquals(missesBefore, filmStorage.getStats().missCount(), "Изменения лайков не должны сбрасывать кэш");
+    }
+
+    @Test
+    void shouldInvalidateCachedFilmOnUpdateAndDelete() {
+        Film film = filmStorage.getFilmById(filmId);
+        film.setName("Updated film");
+        filmStorage.updateFilm(film);
+        assertEquals("Updated film", filmStorage.getFilmById(filmId).getName(), "Кэш не сброшен после обновления");
+
+        filmStorage.deleteFilm(filmId);
+        assertThrows(FilmNotFoundException.class, () -> filmStorage.getFilmById(filmId));
+        assertTrue(filmStorage.getFilmsByIds(List.of(filmId)).isEmpty(), "Удалённый фильм остался в кэше");
+    }
+}
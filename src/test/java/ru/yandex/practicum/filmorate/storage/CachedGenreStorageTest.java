@@ -0,0 +1,47 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import lombok.RequiredArgsConstructor;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.SpringBootTest;
+import ru.yandex.practicum.filmorate.exceptions.GenreNotFoundException;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.storage.genre.CachedGenreStorage;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+@AutoConfigureTestDatabase
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+public class CachedGenreStorageTest {
+    private final CachedGenreStorage genreStorage;
+
+    @Test
+    void shouldReturnSameGenreInstanceFromCache() {
+        long missesBefore = genreStorage.getMisses();
+        Genre genre = genreStorage.getGenreById(2);
+        assertAll("Проверка получения жанра из кэша",
+                () -> assertEquals(new Genre(2, "Драма"), genre, "Жанр не совпадает с ожидаемым"),
+                () -> assertSame(genre, genreStorage.getGenreById(2), "Жанр из кэша не переиспользуется"),
+                () -> assertEquals(missesBefore, genreStorage.getMisses(), "Жанр не был найден в кэше"));
+    }
+
+    @Test
+    void shouldReturnAllGenresOrderedById() {
+        List<Genre> genres = genreStorage.getAllgenres();
+        assertAll("Проверка полученного списка всех жанров",
+                () -> assertEquals(6, genres.size(), "Неверный размер списка жанров"),
+                () -> assertEquals(1, genres.get(0).getId(), "Неверный id первого жанра"),
+                () -> assertEquals(6, genres.get(5).getId(), "Неверный id последнего жанра"));
+    }
+
+    @Test
+    void shouldCountMissAndThrowExceptionWhenGetGenreWithNonexistentId() {
+        long missesBefore = genreStorage.getMisses();
+        assertThrows(GenreNotFoundException.class, () -> genreStorage.getGenreById(100));
+        assertEquals(missesBefore + 1, genreStorage.getMisses(), "Промах кэша не учтён");
+    }
+}
@@ -0,0 +1,47 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import lombok.RequiredArgsConstructor;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.SpringBootTest;
+import ru.yandex.practicum.filmorate.exceptions.RatingNotFoundException;
+import ru.yandex.practicum.filmorate.model.Rating;
+import ru.yandex.practicum.filmorate.storage.rating.CachedRatingStorage;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+@AutoConfigureTestDatabase
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+public class CachedRatingStorageTest {
+    private final CachedRatingStorage ratingStorage;
+
+    @Test
+    void shouldReturnSameRatingInstanceFromCache() {
+        long missesBefore = ratingStorage.getMisses();
+        Rating mpa = ratingStorage.getRatingById(3);
+        assertAll("Проверка получения рейтинга из кэша",
+                () -> assertEquals(new Rating(3, "PG-13"), mpa, "Рейтинг не совпадает с ожидаемым"),
+                () -> assertSame(mpa, ratingStorage.getRatingById(3), "Рейтинг из кэша не переиспользуется"),
+                () -> assertEquals(missesBefore, ratingStorage.getMisses(), "Рейтинг не был найден в кэше"));
+    }
+
+    @Test
+    void shouldReturnAllRatingsOrderedById() {
+        List<Rating> ratings = ratingStorage.getAllRatings();
+        assertAll("Проверка полученного списка всех рейтингов",
+                () -> assertEquals(5, ratings.size(), "Неверный размер списка рейтингов"),
+                () -> assertEquals("G", ratings.get(0).getName(), "Неверное название первого рейтинга"),
+                () -> assertEquals("NC-17", ratings.get(4).getName(), "Неверное название последнего рейтинга"));
+    }
+
+    @Test
+    void shouldCountMissAndThrowExceptionWhenGetRatingWithNonexistentId() {
+        long missesBefore = ratingStorage.getMisses();
+        assertThrows(RatingNotFoundException.class, () -> ratingStorage.getRatingById(100));
+        assertEquals(missesBefore + 1, ratingStorage.getMisses(), "Промах кэша не учтён");
+    }
+}
@@ -1,37 +1,51 @@
 package ru.yandex.practicum.filmorate.storage;
 
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.test.annotation.DirtiesContext;
 import ru.yandex.practicum.filmorate.exceptions.FilmAlreadyExistsException;
 import ru.yandex.practicum.filmorate.exceptions.FilmNotFoundException;
+import ru.yandex.practicum.filmorate.exceptions.FilmUpdateConflictException;
+import ru.yandex.practicum.filmorate.exceptions.UserNotFoundException;
+import ru.yandex.practicum.filmorate.metrics.QueryBudget;
 import ru.yandex.practicum.filmorate.model.Film;
 import ru.yandex.practicum.filmorate.model.Genre;
 import ru.yandex.practicum.filmorate.model.Rating;
 import ru.yandex.practicum.filmorate.model.User;
 import ru.yandex.practicum.filmorate.storage.film.FilmDbStorage;
 import ru.yandex.practicum.filmorate.storage.user.UserDbStorage;
+import ru.yandex.practicum.filmorate.util.IntHashSet;
 
 import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Set;
 import java.util.TreeSet;
 
 import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.clearInvocations;
+import static org.mockito.Mockito.mockingDetails;
 
+@Slf4j
 @SpringBootTest
 @AutoConfigureTestDatabase
 @RequiredArgsConstructor(onConstructor_ = @Autowired)
-@DirtiesContext(classMode = DirtiesContext.ClassMode.BEFORE_EACH_TEST_METHOD)
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
 public class FilmDbStorageTest {
     private final FilmDbStorage filmStorage;
     private final UserDbStorage userStorage;
 
+    @SpyBean
+    private JdbcTemplate jdbcTemplate;
+
     private Film film1;
     private Film film2;
     private Film film3;
@@ -124,6 +138,26 @@ public class FilmDbStorageTest {
         assertTrue(films.isEmpty(), "Полученный список фильмов не пустой");
     }
 
+    @Test
+    void shouldStreamAllFilmsInIdOrder() {
+        filmStorage.addFilm(film2);
+        filmStorage.addLike(2, 1);
+        List<Film> streamedFilms = new ArrayList<>();
+        filmStorage.streamAllFilms(streamedFilms::add);
+        assertEquals(filmStorage.getAllFilms(), streamedFilms, "Списки фильмов не совпадают");
+    }
+
+    @Test
+    void shouldReturnFilmsPageAfterCursor() {
+        filmStorage.addFilm(film2);
+        filmStorage.addFilm(film3);
+        List<Film> firstPage = filmStorage.getFilms(0, 2);
+        List<Film> secondPage = filmStorage.getFilms(firstPage.get(1).getId(), 2);
+        assertAll("Проверка постраничного получения фильмов",
+                () -> assertEquals(List.of(film1, film2), firstPage, "Первая страница не совпадает"),
+                () -> assertEquals(List.of(film3), secondPage, "Вторая страница не совпадает"));
+    }
+
     @Test
     void shouldUpdateFilmSuccessfully() {
         film1.setDuration(250);
@@ -140,6 +174,34 @@ public class FilmDbStorageTest {
         assertEquals(film1, updatedFilmFromDb, "Фильмы не совпадают");
     }
 
+    @Test
+    void shouldUpdateLinkedRowsWithOneReadPerTable() throws Exception {
+        film1.setVersion(0L);
+        film1.setLikes(IntHashSet.of(1, 2));
+        film1.setGenres(new TreeSet<>(List.of(genre2, genre3)));
+
+        QueryBudget.assertAtMost(6, () -> filmStorage.updateFilm(film1));
+
+        Film updatedFilmFromDb = filmStorage.getFilmById(1);
+        assertAll("Проверка обновления связанных записей",
+                () -> assertEquals(film1, updatedFilmFromDb, "Фильмы не совпадают"),
+                () -> assertEquals(1L, updatedFilmFromDb.getVersion(), "Версия фильма не увеличена"));
+    }
+
+    @Test
+    void shouldThrowExceptionWhenUpdateFilmWithStaleVersion() {
+        film1.setVersion(0L);
+        filmStorage.updateFilm(film1);
+        film1.setVersion(0L);
+        film1.setName("Stale film1");
+
+        Exception e = assertThrows(FilmUpdateConflictException.class, () -> filmStorage.updateFilm(film1));
+        assertAll("Проверка конфликта версий",
+                () -> assertEquals("Фильм с идентификатором 1 был изменён другим запросом: ожидалась версия 0, " +
+                        "текущая версия 1", e.getMessage(), "Неверное сообщение исключения"),
+                () -> assertEquals("Film 1", filmStorage.getFilmById(1).getName(), "Устаревшее обновление применено"));
+    }
+
     @Test
     void shouldThrowExceptionWhenUpdateFilmWithNonexistentId() {
         film1.setId(10);
@@ -161,6 +223,15 @@ public class FilmDbStorageTest {
         assertEquals(expectedMessage, e.getMessage(), "Неверное сообщение исключения");
     }
 
+    @Test
+    void shouldDeleteFilmWithLikesWithoutLoadingIt() throws Exception {
+        filmStorage.addLike(1, 1);
+
+        QueryBudget.assertAtMost(3, () -> filmStorage.deleteFilm(1));
+        Integer likeRows = jdbcTemplate.queryForObject("select count(*) from film_likes", Integer.class);
+        assertEquals(0, likeRows, "Лайки удалённого фильма остались в базе");
+    }
+
     @Test
     void shouldThrowExceptionWhenDeleteFilmWithNonexistentId() {
         Exception e = assertThrows(FilmNotFoundException.class, () -> {
@@ -189,6 +260,42 @@ public class FilmDbStorageTest {
                 "не совпадает");
     }
 
+    @Test
+    void shouldReportWhetherLikeSetChanged() {
+        assertAll("Проверка идемпотентности лайков",
+                () -> assertTrue(filmStorage.addLike(1, 1), "Первый лайк не добавлен"),
+                () -> assertFalse(filmStorage.addLike(1, 1), "Повторный лайк добавлен"),
+                () -> assertTrue(filmStorage.removeLike(1, 1), "Лайк не удалён"),
+                () -> assertFalse(filmStorage.removeLike(1, 1), "Отсутствующий лайк удалён"));
+    }
+
+    @Test
+    void shouldThrowExceptionWhenAddLikeWithNonexistentFilmId() {
+        Exception e = assertThrows(FilmNotFoundException.class, () -> {
+            filmStorage.addLike(100, 1);
+        });
+        String expectedMessage = "Фильм с идентификатором 100 не найден";
+        assertEquals(expectedMessage, e.getMessage(), "Неверное сообщение исключения");
+    }
+
+    @Test
+    void shouldThrowExceptionWhenAddLikeWithNonexistentUserId() {
+        Exception e = assertThrows(UserNotFoundException.class, () -> {
+            filmStorage.addLike(1, 100);
+        });
+        String expectedMessage = "Пользователь с идентификатором 100 не найден";
+        assertEquals(expectedMessage, e.getMessage(), "Неверное сообщение исключения");
+    }
+
+    @Test
+    void shouldThrowExceptionWhenRemoveLikeWithNonexistentUserId() {
+        Exception e = assertThrows(UserNotFoundException.class, () -> {
+            filmStorage.removeLike(1, 100);
+        });
+        String expectedMessage = "Пользователь с идентификатором 100 не найден";
+        assertEquals(expectedMessage, e.getMessage(), "Неверное сообщение исключения");
+    }
+
     @Test
     void shouldRemoveLikeSuccessfully() {
         filmStorage.addLike(1, 1);
@@ -241,4 +348,81 @@ public class FilmDbStorageTest {
                 () -> assertEquals("Film 3", films.get(1).getName(),
                         "Неверное название второго по популярности фильма"));
     }
+
+    @Test
+    void shouldAddFilmsInBatches() {
+        int total = 20_000;
+        int chunkSize = 1000;
+        long started = System.nanoTime();
+        for (int i = 0; i < total; i += chunkSize) {
+            List<Film> chunk = new ArrayList<>(chunkSize);
+            for (int j = 0; j < chunkSize; j++) {
+                chunk.add(Film.builder().name("Film " + (i + j)).description("description").duration(90)
+                        .releaseDate(LocalDate.of(2000, 1, 1)).mpa(rating1).genres(new TreeSet<>(Set.of(genre1, genre2)))
+                        .build());
+            }
+            filmStorage.addFilms(chunk);
+        }
+        long elapsedNanos = System.nanoTime() - started;
+        log.info("Imported {} films in {} ms ({} films/sec)", total, elapsedNanos / 1_000_000,
+                total * 1_000_000_000L / elapsedNanos);
+
+        List<Film> films = filmStorage.getFilms(film1.getId(), 1);
+        Integer genreRows = jdbcTemplate.queryForObject("select count(*) from film_genres", Integer.class);
+        assertAll("Проверка пакетного добавления фильмов",
+                () -> assertEquals(total + 1, filmStorage.getLikeCounts().size(), "Неверное количество фильмов"),
+                () -> assertEquals(total * 2 + 1, genreRows, "Неверное количество жанров фильмов"),
+                () -> assertEquals(new TreeSet<>(Set.of(genre1, genre2)), films.get(0).getGenres(),
+                        "Неверные жанры фильма"),
+                () -> assertEquals("Film 0", films.get(0).getName(), "Неверное название фильма"));
+    }
+
+    @Test
+    void shouldRepairDriftedLikeCountsOnReconcile() {
+        filmStorage.addFilm(film2);
+        filmStorage.addLike(2, 1);
+        jdbcTemplate.update("update films set like_count = 10 where film_id = 1");
+
+        int repairedFilms = filmStorage.reconcileLikeCounts();
+        List<Film> films = filmStorage.getMostPopularFilms(2);
+        assertAll("Проверка восстановления счётчиков лайков",
+                () -> assertEquals(1, repairedFilms, "Неверное количество исправленных фильмов"),
+                () -> assertEquals("Film 2", films.get(0).getName(),
+                        "Неверное название самого популярного фильма"));
+    }
+
+    @Test
+    void shouldNotIncreaseQueryCountWhenCatalogueGrows() {
+        filmStorage.addLike(1, 1);
+        int smallCatalogueQueries = countQueries(() -> {
+            filmStorage.getAllFilms();
+            filmStorage.getMostPopularFilms(10);
+            filmStorage.getFilmById(1);
+        });
+
+        for (int i = 0; i < 20; i++) {
+            Film film = filmStorage.addFilm(Film.builder().name("Film " + i).description("description")
+                    .duration(100).releaseDate(LocalDate.of(2000, 1, 1)).mpa(rating2)
+                    .genres(new TreeSet<>(List.of(genre2, genre3))).build());
+            filmStorage.addLike(film.getId(), 1);
+            filmStorage.addLike(film.getId(), 2);
+        }
+        int largeCatalogueQueries = countQueries(() -> {
+            filmStorage.getAllFilms();
+            filmStorage.getMostPopularFilms(10);
+            filmStorage.getFilmById(1);
+        });
+
+        assertTrue(smallCatalogueQueries > 0, "Запросы к БД не были учтены");
+        assertEquals(smallCatalogueQueries, largeCatalogueQueries,
+                "Количество запросов к БД зависит от размера каталога");
+    }
+
+    private int countQueries(Runnable action) {
+        clearInvocations(jdbcTemplate);
+        action.run();
+        return (int) mockingDetails(jdbcTemplate).getInvocations().stream()
+                .filter(invocation -> invocation.getMethod().getName().startsWith("query"))
+                .count();
+    }
 }
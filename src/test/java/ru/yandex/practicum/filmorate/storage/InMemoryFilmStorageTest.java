@@ -0,0 +1,166 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.exceptions.FilmNotFoundException;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Rating;
+import ru.yandex.practicum.filmorate.storage.film.InMemoryFilmStorage;
+
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class InMemoryFilmStorageTest {
+    private static final int THREADS = 8;
+
+    private InMemoryFilmStorage filmStorage;
+
+    @BeforeEach
+    void beforeEach() {
+        filmStorage = new InMemoryFilmStorage();
+    }
+
+    @Test
+    void shouldGenerateUniqueIdsWhenAddingFilmsConcurrently() throws Exception {
+        int filmsPerThread = 1000;
+        Set<Integer> ids = ConcurrentHashMap.newKeySet();
+        runConcurrently(thread -> {
+            for (int i = 0; i < filmsPerThread; i++) {
+                ids.add(filmStorage.addFilm(makeFilm("Film " + thread + "-" + i)).getId());
+            }
+        });
+
+        assertAll("Проверка параллельного добавления фильмов",
+                () -> assertEquals(THREADS * filmsPerThread, ids.size(), "Повторяющиеся id фильмов"),
+                () -> assertEquals(THREADS * filmsPerThread, filmStorage.getAllFilms().size(),
+                        "Неверное количество фильмов"));
+    }
+
+    @Test
+    void shouldCountEachLikeExactlyOnceUnderContention() throws Exception {
+        int filmCount = 20;
+        int userCount = 200;
+        for (int i = 0; i < filmCount; i++) {
+            filmStorage.addFilm(makeFilm("Film " + i));
+        }
+        AtomicInteger acceptedLikes = new AtomicInteger();
+        runConcurrently(thread -> {
+            List<Integer> userIds = new ArrayList<>();
+            for (int userId = 1; userId <= userCount; userId++) {
+                userIds.add(userId);
+            }
+            Collections.shuffle(userIds, new Random(thread));
+            for (int userId : userIds) {
+                for (int filmId = 1; filmId <= filmCount; filmId++) {
+                    if (filmStorage.addLike(filmId, userId)) {
+                        acceptedLikes.incrementAndGet();
+                    }
+                }
+            }
+        });
+
+        Map<Integer, Integer> likeCounts = filmStorage.getLikeCounts();
+        assertAll("Проверка параллельного добавления лайков",
+                () -> assertEquals(filmCount * userCount, acceptedLikes.get(), "Лайк принят несколько раз"),
+                () -> assertTrue(likeCounts.values().stream().allMatch(count -> count == userCount),
+                        "Неверное количество лайков"),
+                () -> assertEquals(userCount, filmStorage.getFilmById(1).getLikes().size(),
+                        "Неверное количество лайков фильма"));
+    }
+
+    @Test
+    void shouldKeepLikeCountsConsistentWhenLikesAreToggledConcurrently() throws Exception {
+        int filmCount = 10;
+        int usersPerThread = 50;
+        int rounds = 101;
+        for (int i = 0; i < filmCount; i++) {
+            filmStorage.addFilm(makeFilm("Film " + i));
+        }
+        runConcurrently(thread -> {
+            for (int round = 0; round < rounds; round++) {
+                for (int user = 0; user < usersPerThread; user++) {
+                    int userId = thread * usersPerThread + user;
+                    for (int filmId = 1; filmId <= filmCount; filmId++) {
+                        boolean changed = round % 2 == 0 ? filmStorage.addLike(filmId, userId)
+                                : filmStorage.removeLike(filmId, userId);
+                        if (!changed) {
+                            throw new IllegalStateException("Лайк потерян");
+                        }
+                    }
+                }
+            }
+        });
+
+        Map<Integer, Integer> likeCounts = filmStorage.getLikeCounts();
+        assertTrue(likeCounts.values().stream().allMatch(count -> count == THREADS * usersPerThread),
+                "Неверное количество лайков");
+    }
+
+    @Test
+    void shouldReturnMostPopularFilmsWithoutFullSort() {
+        for (int i = 0; i < 10; i++) {
+            filmStorage.addFilm(makeFilm("Film " + i));
+        }
+        for (int filmId = 1; filmId <= 10; filmId++) {
+            for (int userId = 0; userId < filmId % 4; userId++) {
+                filmStorage.addLike(filmId, userId);
+            }
+        }
+
+        List<Integer> ids = filmStorage.getMostPopularFilms(4).stream().map(Film::getId)
+                .collect(Collectors.toList());
+        assertEquals(List.of(3, 7, 2, 6), ids, "Неверный порядок популярных фильмов");
+    }
+
+    @Test
+    void shouldNotExposeInternalLikeSets() {
+        Film film = filmStorage.addFilm(makeFilm("Film"));
+        filmStorage.getFilmById(film.getId()).getLikes().add(1);
+
+        assertTrue(filmStorage.getFilmById(film.getId()).getLikes().isEmpty(), "Лайки изменены снаружи");
+    }
+
+    @Test
+    void shouldThrowExceptionWhenLikingDeletedFilm() {
+        Film film = filmStorage.addFilm(makeFilm("Film"));
+        filmStorage.deleteFilm(film.getId());
+
+        assertThrows(FilmNotFoundException.class, () -> filmStorage.addLike(film.getId(), 1));
+    }
+
+    private Film makeFilm(String name) {
+        return Film.builder().name(name).description("description").duration(100)
+                .releaseDate(LocalDate.of(2010, 3, 20)).mpa(new Rating(1)).build();
+    }
+
+    private void runConcurrently(ThreadTask task) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int thread = 0; thread < THREADS; thread++) {
+            int threadNumber = thread;
+            futures.add(executor.submit(() -> {
+                start.await();
+                task.run(threadNumber);
+                return null;
+            }));
+        }
+        start.countDown();
+        try {
+            for (Future<?> future : futures) {
+                future.get(1, TimeUnit.MINUTES);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private interface ThreadTask {
+        void run(int thread) throws Exception;
+    }
+}
@@ -0,0 +1,163 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.exceptions.UserNotFoundException;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.service.AdjacencyIndex;
+import ru.yandex.practicum.filmorate.storage.user.InMemoryUserStorage;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class InMemoryUserStorageTest {
+    private static final int THREADS = 8;
+    private static final int USER_COUNT = 200;
+
+    private InMemoryUserStorage userStorage;
+
+    @BeforeEach
+    void beforeEach() {
+        userStorage = new InMemoryUserStorage();
+        for (int i = 0; i < USER_COUNT; i++) {
+            userStorage.addUser(User.builder().login("login" + i).email("user" + i + "@yandex.ru")
+                    .birthday(LocalDate.of(2000, 1, 1)).build());
+        }
+    }
+
+    @Test
+    void shouldAddEachFriendExactlyOnceUnderContention() throws Exception {
+        AtomicInteger acceptedFriendships = new AtomicInteger();
+        runConcurrently(thread -> {
+            for (int userId = 1; userId <= USER_COUNT; userId++) {
+                for (int friendId = 1; friendId <= USER_COUNT; friendId++) {
+                    if (friendId != userId && userStorage.addFriend(userId, friendId)) {
+                        acceptedFriendships.incrementAndGet();
+                    }
+                }
+            }
+        });
+
+        assertAll("Проверка параллельного добавления друзей",
+                () -> assertEquals(USER_COUNT * (USER_COUNT - 1), acceptedFriendships.get(),
+                        "Дружба принята несколько раз"),
+                () -> assertEquals(USER_COUNT - 1, userStorage.getUserFriends(1).size(),
+                        "Неверное количество друзей"),
+                () -> assertEquals(USER_COUNT - 2, friendIndex().getCommonFriendIds(1, 2).length,
+                        "Неверное количество общих друзей"));
+    }
+
+    @Test
+    void shouldKeepFriendListsConsistentWhenFriendshipsAreToggledConcurrently() throws Exception {
+        int rounds = 51;
+        int friendsPerThread = USER_COUNT / THREADS;
+        runConcurrently(thread -> {
+            for (int round = 0; round < rounds; round++) {
+                for (int friend = 1; friend <= friendsPerThread; friend++) {
+                    int friendId = thread * friendsPerThread + friend;
+                    boolean changed = round % 2 == 0 ? userStorage.addFriend(1, friendId)
+                            : userStorage.removeFriend(1, friendId);
+                    if (!changed) {
+                        throw new IllegalStateException("Изменение дружбы потеряно");
+                    }
+                }
+            }
+        });
+
+        List<Integer> friendIds = userStorage.getUserFriends(1).stream().map(User::getId)
+                .collect(Collectors.toList());
+        assertEquals(THREADS * friendsPerThread, friendIds.size(), "Неверное количество друзей");
+    }
+
+    @Test
+    void shouldReturnCommonFriendsInIdOrder() {
+        userStorage.addFriend(1, 7);
+        userStorage.addFriend(1, 3);
+        userStorage.addFriend(1, 5);
+        userStorage.addFriend(2, 5);
+        userStorage.addFriend(2, 3);
+        userStorage.addFriend(2, 4);
+
+        assertArrayEquals(new int[]{3, 5}, friendIndex().getCommonFriendIds(1, 2), "Неверный список общих друзей");
+    }
+
+    @Test
+    void shouldNotExposeInternalFriendSets() {
+        userStorage.getUserById(1).getFriendIds().add(2);
+
+        assertTrue(userStorage.getUserFriends(1).isEmpty(), "Друзья изменены снаружи");
+    }
+
+    @Test
+    void shouldThrowExceptionWhenAddingFriendToDeletedUser() {
+        userStorage.deleteUser(1);
+
+        assertThrows(UserNotFoundException.class, () -> userStorage.addFriend(1, 2));
+    }
+
+    @Test
+    void shouldNotKeepFriendshipsWithUsersDeletedConcurrently() throws Exception {
+        int firstDeletedId = THREADS + 1;
+        runConcurrently(thread -> {
+            for (int friendId = firstDeletedId; friendId <= USER_COUNT; friendId++) {
+                if (thread == 0) {
+                    userStorage.deleteUser(friendId);
+                    continue;
+                }
+                for (int attempt = 0; attempt < 10; attempt++) {
+                    try {
+                        userStorage.addFriend(thread, friendId);
+                    } catch (UserNotFoundException e) {
+                        break;
+                    }
+                }
+            }
+        });
+
+        for (int userId = 1; userId < firstDeletedId; userId++) {
+            assertTrue(userStorage.getUserById(userId).getFriendIds().stream()
+                            .allMatch(friendId -> friendId < firstDeletedId),
+                    "В друзьях остался удалённый пользователь");
+        }
+        userStorage.streamFriendships(friendship -> assertTrue(friendship.getFriendId() < firstDeletedId,
+                "Дружба с удалённым пользователем сохранилась"));
+    }
+
+    private AdjacencyIndex friendIndex() {
+        AdjacencyIndex index = new AdjacencyIndex();
+        index.rebuildFriends(userStorage::streamFriendships);
+        return index;
+    }
+
+    private void runConcurrently(ThreadTask task) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int thread = 0; thread < THREADS; thread++) {
+            int threadNumber = thread;
+            futures.add(executor.submit(() -> {
+                start.await();
+                task.run(threadNumber);
+                return null;
+            }));
+        }
+        start.countDown();
+        try {
+            for (Future<?> future : futures) {
+                future.get(1, TimeUnit.MINUTES);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private interface ThreadTask {
+        void run(int thread) throws Exception;
+    }
+}
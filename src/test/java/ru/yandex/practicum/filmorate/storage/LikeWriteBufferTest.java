@@ -0,0 +1,197 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import lombok.RequiredArgsConstructor;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.annotation.DirtiesContext;
+import ru.yandex.practicum.filmorate.exceptions.FilmNotFoundException;
+import ru.yandex.practicum.filmorate.exceptions.UserNotFoundException;
+import ru.yandex.practicum.filmorate.metrics.QueryBudget;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Rating;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.service.FilmService;
+import ru.yandex.practicum.filmorate.service.UserService;
+import ru.yandex.practicum.filmorate.storage.film.LikeWriteBuffer;
+
+import java.time.LocalDate;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.reset;
+
+@SpringBootTest(properties = {
+        "filmorate.likes.write-behind.enabled=true",
+        "filmorate.likes.write-behind.max-pending=3",
+        "filmorate.likes.write-behind.flush-interval-ms=3600000"
+})
+@AutoConfigureTestDatabase
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
+public class LikeWriteBufferTest {
+    private final FilmService filmService;
+    private final UserService userService;
+    private final LikeWriteBuffer likeWriteBuffer;
+
+    @SpyBean
+    private JdbcTemplate jdbcTemplate;
+
+    private Film film1;
+    private Film film2;
+    private User user1;
+    private User user2;
+
+    @BeforeEach
+    void beforeEach() {
+        film1 = filmService.addFilm(Film.builder().name("Film 1").description("description 1").duration(100)
+                .releaseDate(LocalDate.of(2010, 3, 20)).mpa(new Rating(1)).build());
+        film2 = filmService.addFilm(Film.builder().name("Film 2").description("description 2").duration(150)
+                .releaseDate(LocalDate.of(2015, 5, 15)).mpa(new Rating(2)).build());
+        user1 = userService.addUser(User.builder().login("login1").name("user1").email("user1@yandex.ru")
+                .birthday(LocalDate.of(2000, 3, 20)).build());
+        user2 = userService.addUser(User.builder().login("login2").name("user2").email("user2@yandex.ru")
+                .birthday(LocalDate.of(2010, 4, 5)).build());
+    }
+
+    @Test
+    void shouldShowBufferedLikesBeforeFlush() {
+        filmService.addLike(film2.getId(), user1.getId());
+
+        assertAll("Проверка чтения неподтверждённых лайков",
+                () -> assertEquals(0, countLikeRows(), "Лайк записан в базу до сброса буфера"),
+                () -> assertEquals(Set.of(user1.getId()), filmService.getFilmById(film2.getId()).getLikes(),
+                        "Лайк не виден до сброса буфера"),
+                () -> assertEquals(film2.getId(), filmService.getMostPopularFilms(1).get(0).getId(),
+                        "Неверный самый популярный фильм"));
+    }
+
+    @Test
+    void shouldWriteBufferedLikesOnFlush() {
+        filmService.addLike(film1.getId(), user1.getId());
+        filmService.addLike(film1.getId(), user2.getId());
+        likeWriteBuffer.flush();
+
+        Integer likeCount = jdbcTemplate.queryForObject("select like_count from films where film_id = ?",
+                Integer.class, film1.getId());
+        assertAll("Проверка сброса буфера лайков",
+                () -> assertEquals(2, countLikeRows(), "Неверное количество лайков в базе"),
+                () -> assertEquals(2, likeCount, "Неверный счётчик лайков"),
+                () -> assertEquals(0, likeWriteBuffer.getPendingCount(), "Буфер не очищен"));
+    }
+
+    @Test
+    void shouldCoalesceLikeAndUnlike() {
+        filmService.addLike(film1.getId(), user1.getId());
+        filmService.removeLike(film1.getId(), user1.getId());
+
+        assertEquals(0, likeWriteBuffer.getPendingCount(), "Лайк и отмена лайка не схлопнулись");
+        likeWriteBuffer.flush();
+        assertTrue(filmService.getFilmById(film1.getId()).getLikes().isEmpty(), "Лайк сохранён");
+    }
+
+    @Test
+    void shouldBufferUnlikeOfPersistedLike() {
+        filmService.addLike(film1.getId(), user1.getId());
+        likeWriteBuffer.flush();
+        filmService.removeLike(film1.getId(), user1.getId());
+
+        assertAll("Проверка отмены сохранённого лайка",
+                () -> assertEquals(1, countLikeRows(), "Лайк удалён до сброса буфера"),
+                () -> assertTrue(filmService.getFilmById(film1.getId()).getLikes().isEmpty(),
+                        "Отмена лайка не видна до сброса буфера"));
+        likeWriteBuffer.drain();
+        assertEquals(0, countLikeRows(), "Лайк не удалён при остановке");
+    }
+
+    @Test
+    void shouldFlushWhenBufferIsFull() {
+        filmService.addLike(film1.getId(), user1.getId());
+        filmService.addLike(film1.getId(), user2.getId());
+        filmService.addLike(film2.getId(), user1.getId());
+
+        assertAll("Проверка сброса заполненного буфера",
+                () -> assertEquals(3, countLikeRows(), "Буфер не сброшен при заполнении"),
+                () -> assertEquals(0, likeWriteBuffer.getPendingCount(), "Буфер не очищен"));
+    }
+
+    @Test
+    void shouldWriteDirectlyWhenBufferIsFullAfterFailedFlush() {
+        doThrow(new DataAccessResourceFailureException("База недоступна")).when(jdbcTemplate)
+                .batchUpdate(anyString(), anyCollection(), anyInt(), any());
+        filmService.addLike(film1.getId(), user1.getId());
+        filmService.addLike(film1.getId(), user2.getId());
+        filmService.addLike(film2.getId(), user1.getId());
+        filmService.addLike(film2.getId(), user2.getId());
+
+        assertAll("Проверка заполненного буфера после ошибки сброса",
+                () -> assertEquals(3, likeWriteBuffer.getPendingCount(), "Буфер вырос после ошибки сброса"),
+                () -> assertEquals(1, countLikeRows(), "Лайк не записан в базу напрямую"),
+                () -> assertEquals(Set.of(user1.getId(), user2.getId()),
+                        filmService.getFilmById(film2.getId()).getLikes(), "Неверные лайки фильма"));
+
+        reset(jdbcTemplate);
+        likeWriteBuffer.flush();
+        assertAll("Проверка повторного сброса буфера",
+                () -> assertEquals(4, countLikeRows(), "Неверное количество лайков в базе"),
+                () -> assertEquals(0, likeWriteBuffer.getPendingCount(), "Буфер не очищен"));
+    }
+
+    @Test
+    void shouldNotCacheLikeOfUserDeletedDuringFlush() {
+        filmService.addLike(film1.getId(), user1.getId());
+        filmService.addLike(film1.getId(), user2.getId());
+        filmService.getFilmById(film1.getId());
+        doAnswer(invocation -> {
+            userService.removeUser(user1.getId());
+            return invocation.callRealMethod();
+        }).when(jdbcTemplate).batchUpdate(startsWith("insert into film_likes"), anyCollection(), anyInt(), any());
+
+        likeWriteBuffer.flush();
+
+        assertAll("Проверка лайков пользователя, удалённого во время сброса",
+                () -> assertEquals(1, countLikeRows(), "Неверное количество лайков в базе"),
+                () -> assertEquals(Set.of(user2.getId()), filmService.getFilmById(film1.getId()).getLikes(),
+                        "Лайк удалённого пользователя попал в кэш"));
+    }
+
+    @Test
+    void shouldThrowExceptionWhenBufferingLikeOfNonexistentUser() {
+        Exception e = assertThrows(UserNotFoundException.class, () -> {
+            filmService.addLike(film1.getId(), 100);
+        });
+        String expectedMessage = "Пользователь с идентификатором 100 не найден";
+        assertEquals(expectedMessage, e.getMessage(), "Неверное сообщение исключения");
+    }
+
+    @Test
+    void shouldThrowExceptionWhenBufferingLikeOfNonexistentFilm() {
+        Exception e = assertThrows(FilmNotFoundException.class, () -> {
+            filmService.addLike(100, user1.getId());
+        });
+        String expectedMessage = "Фильм с идентификатором 100 не найден";
+        assertEquals(expectedMessage, e.getMessage(), "Неверное сообщение исключения");
+    }
+
+    @Test
+    void shouldBufferLikesOfKnownUserAndCachedFilmWithoutQueries() throws Exception {
+        filmService.addLike(film1.getId(), user1.getId());
+        filmService.getFilmById(film2.getId());
+
+        QueryBudget.assertAtMost(0, () -> filmService.addLike(film2.getId(), user1.getId()));
+        assertEquals(2, likeWriteBuffer.getPendingCount(), "Лайк не попал в буфер");
+    }
+
+    private int countLikeRows() {
+        Integer rows = jdbcTemplate.queryForObject("select count(*) from film_likes", Integer.class);
+        return rows == null ? 0 : rows;
+    }
+}
@@ -1,30 +1,47 @@
 package ru.yandex.practicum.filmorate.storage;
 
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.test.annotation.DirtiesContext;
 import ru.yandex.practicum.filmorate.exceptions.UserAlreadyExistsException;
 import ru.yandex.practicum.filmorate.exceptions.UserNotFoundException;
+import ru.yandex.practicum.filmorate.exceptions.UserUpdateConflictException;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.ImportedFriendship;
+import ru.yandex.practicum.filmorate.model.ImportedUser;
+import ru.yandex.practicum.filmorate.model.Rating;
 import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.model.UserImportRequest;
+import ru.yandex.practicum.filmorate.service.FilmService;
+import ru.yandex.practicum.filmorate.service.UserService;
 import ru.yandex.practicum.filmorate.storage.user.UserDbStorage;
 
 import java.time.LocalDate;
-import java.util.Collections;
-import java.util.List;
-import java.util.Set;
+import java.util.*;
 
 import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.clearInvocations;
+import static org.mockito.Mockito.mockingDetails;
 
+@Slf4j
 @SpringBootTest
 @AutoConfigureTestDatabase
 @RequiredArgsConstructor(onConstructor_ = @Autowired)
-@DirtiesContext(classMode = DirtiesContext.ClassMode.BEFORE_EACH_TEST_METHOD)
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
 public class UserDbStorageTest {
     private final UserDbStorage userStorage;
+    private final UserService userService;
+    private final FilmService filmService;
+
+    @SpyBean
+    private JdbcTemplate jdbcTemplate;
 
     private User user1;
     private User user2;
@@ -95,6 +112,19 @@ public class UserDbStorageTest {
                 () -> assertEquals(expectedUsers, users, "Списки пользователей не совпадают"));
     }
 
+    @Test
+    void shouldReturnUsersPageAfterCursor() {
+        userStorage.addUser(user2);
+        userStorage.addUser(user3);
+        userStorage.addFriend(3, 1);
+        List<User> firstPage = userStorage.getUsers(0, 2);
+        List<User> secondPage = userStorage.getUsers(firstPage.get(1).getId(), 2);
+        assertAll("Проверка постраничного получения пользователей",
+                () -> assertEquals(List.of(user1, user2), firstPage, "Первая страница не совпадает"),
+                () -> assertEquals(1, secondPage.size(), "Неверный размер второй страницы"),
+                () -> assertEquals(Set.of(1), secondPage.get(0).getFriendIds(), "id друзей не совпадают"));
+    }
+
     @Test
     void shouldReturnEmptyListWhenGetAllUsersFromEmptyDb() {
         userStorage.deleteUser(1);
@@ -114,6 +144,23 @@ public class UserDbStorageTest {
         assertEquals(user1, updatedUserFromDb, "Пользователи не совпадают");
     }
 
+    @Test
+    void shouldThrowExceptionWhenUpdateUserWithStaleVersion() {
+        userStorage.addUser(user2);
+        user1.setVersion(0L);
+        user1.addFriend(2);
+        userStorage.updateUser(user1);
+        user1.setVersion(0L);
+        user1.removeFriend(2);
+
+        Exception e = assertThrows(UserUpdateConflictException.class, () -> userStorage.updateUser(user1));
+        assertAll("Проверка конфликта версий",
+                () -> assertEquals("Пользователь с идентификатором 1 был изменён другим запросом: ожидалась " +
+                        "версия 0, текущая версия 1", e.getMessage(), "Неверное сообщение исключения"),
+                () -> assertEquals(Set.of(2), userStorage.getUserById(1).getFriendIds(),
+                        "Устаревшее обновление применено"));
+    }
+
     @Test
     void shouldThrowExceptionWhenUpdateUserWithNonexistentId() {
         user1.setId(10);
@@ -136,6 +183,27 @@ public class UserDbStorageTest {
 
     }
 
+    @Test
+    void shouldDeleteUserWithLikes() {
+        User addedUser = userService.addUser(user2);
+        Film film = filmService.addFilm(Film.builder().name("Film").description("description").duration(100)
+                .releaseDate(LocalDate.of(2010, 3, 20)).mpa(new Rating(1)).build());
+        filmService.addLike(film.getId(), 1);
+        filmService.addLike(film.getId(), addedUser.getId());
+        filmService.getFilmById(film.getId());
+
+        userService.removeUser(addedUser.getId());
+
+        Integer likeCount = jdbcTemplate.queryForObject("select like_count from films where film_id = ?",
+                Integer.class, film.getId());
+        assertAll("Проверка удаления лайков пользователя",
+                () -> assertEquals(1, likeCount, "Неверный счётчик лайков"),
+                () -> assertEquals(Set.of(1), filmService.getFilmById(film.getId()).getLikes(),
+                        "Лайки удалённого пользователя остались у фильма"),
+                () -> assertEquals(1, filmService.getMostPopularFilms(1).get(0).getLikes().size(),
+                        "Лайки удалённого пользователя остались в рейтинге"));
+    }
+
     @Test
     void shouldThrowExceptionWhenDeleteUserWithNonexistentId() {
         Exception e = assertThrows(UserNotFoundException.class, () -> {
@@ -233,12 +301,12 @@ public class UserDbStorageTest {
         userStorage.addUser(user2);
         userStorage.addUser(user3);
         userStorage.addUser(user4);
-        userStorage.addFriend(1, 3);
-        userStorage.addFriend(1, 4);
-        userStorage.addFriend(2, 1);
-        userStorage.addFriend(2, 3);
-        userStorage.addFriend(2, 4);
-        List<User> commonFriends = userStorage.getCommonFriends(1, 2);
+        userService.addFriend(1, 3);
+        userService.addFriend(1, 4);
+        userService.addFriend(2, 1);
+        userService.addFriend(2, 3);
+        userService.addFriend(2, 4);
+        List<User> commonFriends = userService.getCommonFriends(1, 2);
         assertAll("Проверка списка общих друзей",
                 () -> assertEquals(2, commonFriends.size(),
                         "Размер списка общих друзей не совпадает с ожидаемым"),
@@ -253,11 +321,11 @@ public class UserDbStorageTest {
         userStorage.addUser(user2);
         userStorage.addUser(user3);
         userStorage.addUser(user4);
-        userStorage.addFriend(1, 2);
-        userStorage.addFriend(1, 3);
-        userStorage.addFriend(2, 1);
-        userStorage.addFriend(2, 4);
-        List<User> commonFriends = userStorage.getCommonFriends(1, 2);
+        userService.addFriend(1, 2);
+        userService.addFriend(1, 3);
+        userService.addFriend(2, 1);
+        userService.addFriend(2, 4);
+        List<User> commonFriends = userService.getCommonFriends(1, 2);
         assertTrue(commonFriends.isEmpty(), "Полученный список друзей не пустой");
     }
 
@@ -278,4 +346,91 @@ public class UserDbStorageTest {
         String expectedMessage = "Пользователь с идентификатором 100 не найден";
         assertEquals(expectedMessage, e.getMessage(), "Неверное сообщение исключения");
     }
+
+    @Test
+    void shouldNotLoadFriendIdsWhenNotRequested() {
+        userStorage.addUser(user2);
+        userStorage.addFriend(1, 2);
+        User user = userStorage.getUserById(1, false);
+        assertTrue(user.getFriendIds().isEmpty(), "id друзей загружены без необходимости");
+    }
+
+    @Test
+    void shouldNotIncreaseQueryCountWhenFriendListGrows() {
+        userStorage.addUser(user2);
+        userStorage.addUser(user3);
+        userService.addFriend(1, 2);
+        userService.addFriend(3, 2);
+        int fewFriendsQueries = countQueries(() -> {
+            userStorage.getAllUsers();
+            userStorage.getUserFriends(1);
+            userService.getCommonFriends(1, 3);
+        });
+
+        for (int i = 0; i < 20; i++) {
+            User friend = userStorage.addUser(User.builder().login("friend" + i).email("friend" + i + "@yandex.ru")
+                    .birthday(LocalDate.of(2000, 1, 1)).build());
+            userService.addFriend(1, friend.getId());
+            userService.addFriend(3, friend.getId());
+            userService.addFriend(friend.getId(), 1);
+        }
+        int manyFriendsQueries = countQueries(() -> {
+            userStorage.getAllUsers();
+            userStorage.getUserFriends(1);
+            userService.getCommonFriends(1, 3);
+        });
+
+        assertTrue(fewFriendsQueries > 0, "Запросы к БД не были учтены");
+        assertEquals(fewFriendsQueries, manyFriendsQueries, "Количество запросов к БД зависит от числа друзей");
+    }
+
+    private int countQueries(Runnable action) {
+        clearInvocations(jdbcTemplate);
+        action.run();
+        return (int) mockingDetails(jdbcTemplate).getInvocations().stream()
+                .filter(invocation -> invocation.getMethod().getName().startsWith("query"))
+                .count();
+    }
+
+    @Test
+    void shouldImportUsersWithFriendGraph() {
+        int userCount = 10_000;
+        int friendsPerUser = 10;
+        List<ImportedUser> users = new ArrayList<>(userCount);
+        List<ImportedFriendship> friendships = new ArrayList<>(userCount * friendsPerUser);
+        for (int i = 0; i < userCount; i++) {
+            users.add(new ImportedUser("ext-" + i, User.builder().login("import" + i)
+                    .email("import" + i + "@yandex.ru").birthday(LocalDate.of(2000, 1, 1)).build()));
+            for (int j = 1; j <= friendsPerUser; j++) {
+                friendships.add(new ImportedFriendship("ext-" + i, "ext-" + (i + j) % userCount));
+            }
+        }
+
+        long started = System.nanoTime();
+        Map<String, Integer> ids = userService.importUsers(new UserImportRequest(users, friendships));
+        long elapsedMillis = (System.nanoTime() - started) / 1_000_000;
+        log.info("Imported {} users and {} friendships in {} ms", userCount, friendships.size(), elapsedMillis);
+
+        Integer friendRows = jdbcTemplate.queryForObject("select count(*) from friends", Integer.class);
+        User lastUser = userStorage.getUserById(ids.get("ext-" + (userCount - 1)));
+        assertAll("Проверка импорта пользователей",
+                () -> assertEquals(userCount, ids.size(), "Неверное количество пользователей"),
+                () -> assertEquals(userCount * friendsPerUser, friendRows, "Неверное количество дружб"),
+                () -> assertEquals("import" + (userCount - 1), lastUser.getName(), "Неверное имя пользователя"),
+                () -> assertTrue(lastUser.getFriendIds().contains(ids.get("ext-0")), "Друг не добавлен"));
+    }
+
+    @Test
+    void shouldNotImportAnythingWhenFriendshipReferencesUnknownUser() {
+        List<ImportedUser> users = List.of(new ImportedUser("a", user2), new ImportedUser("b", user3));
+        List<ImportedFriendship> friendships = List.of(new ImportedFriendship("a", "c"));
+
+        Exception e = assertThrows(UserNotFoundException.class, () -> {
+            userService.importUsers(new UserImportRequest(users, friendships));
+        });
+        assertAll("Проверка отклонённого импорта",
+                () -> assertEquals("Пользователь с внешним идентификатором c не найден", e.getMessage(),
+                        "Неверное сообщение исключения"),
+                () -> assertEquals(1, userStorage.getAllUsers().size(), "Пользователи добавлены"));
+    }
 }
@@ -0,0 +1,61 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.yandex.practicum.filmorate.model.ImportedFriendship;
+import ru.yandex.practicum.filmorate.model.ImportedUser;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.model.UserImportRequest;
+import ru.yandex.practicum.filmorate.service.UserService;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@Slf4j
+@SpringBootTest
+@AutoConfigureTestDatabase
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+@EnabledIfSystemProperty(named = "filmorate.large-tests", matches = "true")
+public class UserImportBudgetTest {
+    private static final int USER_COUNT = 100_000;
+    private static final int FRIENDS_PER_USER = 10;
+    private static final long BUDGET_MILLIS = 60_000;
+
+    private final UserService userService;
+    private final JdbcTemplate jdbcTemplate;
+
+    @Test
+    void shouldImportLargeFriendGraphWithinBudget() {
+        List<ImportedUser> users = new ArrayList<>(USER_COUNT);
+        List<ImportedFriendship> friendships = new ArrayList<>(USER_COUNT * FRIENDS_PER_USER);
+        for (int i = 0; i < USER_COUNT; i++) {
+            users.add(new ImportedUser("ext-" + i, User.builder().login("import" + i)
+                    .email("import" + i + "@yandex.ru").birthday(LocalDate.of(2000, 1, 1)).build()));
+            for (int j = 1; j <= FRIENDS_PER_USER; j++) {
+                friendships.add(new ImportedFriendship("ext-" + i, "ext-" + (i + j) % USER_COUNT));
+            }
+        }
+
+        long started = System.nanoTime();
+        Map<String, Integer> ids = userService.importUsers(new UserImportRequest(users, friendships));
+        long elapsedMillis = (System.nanoTime() - started) / 1_000_000;
+        log.info("Imported {} users and {} friendships in {} ms", USER_COUNT, friendships.size(), elapsedMillis);
+
+        Integer friendRows = jdbcTemplate.queryForObject("select count(*) from friends", Integer.class);
+        assertAll("Проверка импорта большого графа друзей",
+                () -> assertEquals(USER_COUNT, ids.size(), "Неверное количество пользователей"),
+                () -> assertEquals(USER_COUNT * FRIENDS_PER_USER, friendRows, "Неверное количество дружб"),
+                () -> assertTrue(elapsedMillis <= BUDGET_MILLIS, String.format(
+                        "Импорт занял %d мс при бюджете %d мс", elapsedMillis, BUDGET_MILLIS)));
+    }
+}
@@ -0,0 +1,88 @@
+package ru.yandex.practicum.filmorate.util;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.openjdk.jol.info.GraphLayout;
+import ru.yandex.practicum.filmorate.model.Film;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class IntHashSetTest {
+
+    @Test
+    void shouldBehaveLikeHashSetUnderRandomOperations() {
+        Random random = new Random(42);
+        IntHashSet set = new IntHashSet();
+        Set<Integer> expected = new HashSet<>();
+        for (int i = 0; i < 200_000; i++) {
+            int value = random.nextInt(2000) - 1000;
+            switch (random.nextInt(3)) {
+                case 0:
+                    assertEquals(expected.add(value), set.add(value), "Неверный результат добавления " + value);
+                    break;
+                case 1:
+                    assertEquals(expected.remove(value), set.remove(value), "Неверный результат удаления " + value);
+                    break;
+                default:
+                    assertEquals(expected.contains(value), set.contains(value), "Неверный результат поиска " + value);
+            }
+            assertEquals(expected.size(), set.size(), "Неверный размер множества");
+        }
+
+        int[] values = set.toIntArray();
+        Arrays.sort(values);
+        assertArrayEquals(expected.stream().mapToInt(Integer::intValue).sorted().toArray(), values,
+                "Неверное содержимое множества");
+    }
+
+    @Test
+    void shouldKeepZeroAndGrowBeyondInitialCapacity() {
+        IntHashSet set = new IntHashSet();
+        for (int i = 0; i < 1000; i++) {
+            set.add(i);
+        }
+        assertAll("Проверка роста множества",
+                () -> assertEquals(1000, set.size(), "Неверный размер множества"),
+                () -> assertTrue(set.contains(0), "Ноль потерян"),
+                () -> assertTrue(set.remove(0), "Ноль не удалён"),
+                () -> assertFalse(set.contains(0), "Ноль не удалён"),
+                () -> assertTrue(set.contains(999), "Значение потеряно при росте"));
+    }
+
+    @Test
+    void shouldSerializeAsPlainJsonArray() throws Exception {
+        ObjectMapper mapper = new ObjectMapper().findAndRegisterModules();
+        Film film = Film.builder().name("Film").likes(IntHashSet.of(3, 1, 2)).build();
+
+        JsonNode likesJson = mapper.readTree(mapper.writeValueAsString(film)).get("likes");
+        Set<Integer> likesFromJson = new HashSet<>();
+        likesJson.forEach(like -> likesFromJson.add(like.intValue()));
+        Film filmFromJson = mapper.readValue("{\"name\": \"Film\", \"likes\": [5, 4, 5]}", Film.class);
+
+        assertAll("Проверка сериализации множества",
+                () -> assertTrue(likesJson.isArray(), "Лайки записаны не массивом"),
+                () -> assertEquals(Set.of(1, 2, 3), likesFromJson, "Неверно записанные лайки"),
+                () -> assertEquals(Set.of(4, 5), filmFromJson.getLikes(), "Неверно прочитанные лайки"));
+    }
+
+    @Test
+    void shouldTakeFarLessMemoryThanHashSet() {
+        Set<Integer> boxedValues = new HashSet<>();
+        IntHashSet values = new IntHashSet();
+        for (int i = 1; i <= 100_000; i++) {
+            boxedValues.add(i);
+            values.add(i);
+        }
+
+        long boxedSize = GraphLayout.parseInstance(boxedValues).totalSize();
+        long primitiveSize = GraphLayout.parseInstance(values).totalSize();
+        assertTrue(primitiveSize * 4 < boxedSize, String.format("IntHashSet занимает %d байт, HashSet %d байт",
+                primitiveSize, boxedSize));
+    }
+}